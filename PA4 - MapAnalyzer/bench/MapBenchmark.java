@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * The MapBenchmark class measures the throughput and the allocation rate of the main operations of
+ * MapAnalyzer on one map: adding its roads to a graph, finding shortest routes, building the Barely
+ * Connected Map with every algorithm, totalling the road distances and the whole analysis. Every
+ * benchmark runs a few warmup iterations before the measured ones. Allocation is the growth of the
+ * bytes allocated by the threads alive when it is read before and after the measured iterations,
+ * so threads that end in between, such as idle ForkJoin workers, are missed and the figure is a
+ * lower bound; it is unknown if the virtual machine does not track allocation per thread. The
+ * number of garbage collections and the time they took are printed alongside, since they count
+ * the work of every thread.
+ * <p>
+ * The route benchmarks are also printed as speedups over Dijkstra's algorithm, which every other
+ * route algorithm has to beat on the same queries once its preprocessing is done. The contraction
+ * hierarchy is prepared before the route benchmarks, as in batch and server mode.
+ * <p>
+ * The results can be saved and later compared with another run, which fails with exit status 1 if
+ * any benchmark has lost more throughput than the tolerance allows. The benchmarks are compiled
+ * together with the sources, for example with "javac -d out src/*.java bench/*.java".
+ */
+public class MapBenchmark {
+    private static final int ROUTE_QUERIES = 64;
+    private static final int TOTAL_DISTANCE_CALLS = 1_000_000;
+    private static final String ROUTE_BENCHMARK = "Graph.findShortestRoute[";
+
+    private static long sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * The Result class holds the measurements of one benchmark.
+     */
+    private static class Result {
+        private final String name;
+        private final double operationsPerSecond;
+        private final double bytesPerOperation;
+        private final long collections;
+        private final long collectionMillis;
+
+        /**
+         * Constructs a Result with the specified measurements.
+         *
+         * @param name The name of the benchmark.
+         * @param operationsPerSecond The number of operations per second.
+         * @param bytesPerOperation The number of bytes allocated per operation, or -1 if unknown.
+         * @param collections The number of garbage collections during the measured iterations.
+         * @param collectionMillis The milliseconds the garbage collections took.
+         */
+        Result(String name, double operationsPerSecond, double bytesPerOperation, long collections, long collectionMillis) {
+            this.name = name;
+            this.operationsPerSecond = operationsPerSecond;
+            this.bytesPerOperation = bytesPerOperation;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+    }
+
+    /**
+     * The Operation interface is one measured unit of work of a benchmark.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param iteration The number of the iteration, counting warmup iterations.
+         */
+        void run(int iteration);
+    }
+
+    /**
+     * Constructs a MapBenchmark with the specified numbers of iterations.
+     *
+     * @param warmupIterations The number of unmeasured iterations before each benchmark.
+     * @param iterations The number of measured iterations of each benchmark.
+     */
+    private MapBenchmark(int warmupIterations, int iterations) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Runs the benchmarks from the command line.
+     *
+     * @param args The path of a map file, or "--generate=shape:points[:seed]" for a map written by
+     *             MapGenerator. "--warmup=2" and "--iterations=5" set the number of iterations,
+     *             "--save=results.tsv" writes the results, and "--baseline=results.tsv" compares them
+     *             with saved ones, allowing the throughput to drop by "--tolerance=0.2" at most.
+     */
+    public static void main(String[] args) throws IOException {
+        String mapPath = null;
+        String savePath = null;
+        String baselinePath = null;
+        int warmupIterations = 2;
+        int iterations = 5;
+        double tolerance = 0.2;
+        for (String arg : args) {
+            if (arg.startsWith("--generate=")) {
+                String[] parts = arg.substring("--generate=".length()).split(":");
+                Path generated = Files.createTempFile("map", ".txt");
+                generated.toFile().deleteOnExit();
+                long seed = parts.length > 2 ? Long.parseLong(parts[2]) : 1;
+                if (!MapGenerator.write(parts[0], Integer.parseInt(parts[1]), seed, generated.toString())) {
+                    System.err.println("Could not generate map: " + arg);
+                    return;
+                }
+                mapPath = generated.toString();
+            } else if (arg.startsWith("--warmup=")) {
+                warmupIterations = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--save=")) {
+                savePath = arg.substring("--save=".length());
+            } else if (arg.startsWith("--baseline=")) {
+                baselinePath = arg.substring("--baseline=".length());
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+            } else {
+                mapPath = arg;
+            }
+        }
+        if (mapPath == null) {
+            System.err.println("Usage: MapBenchmark [options] <map file> | --generate=<grid|geometric|powerlaw>:<points>[:seed]");
+            return;
+        }
+
+        MapBenchmark benchmark = new MapBenchmark(warmupIterations, iterations);
+        benchmark.runAll(mapPath);
+        benchmark.print();
+        benchmark.printRouteSpeedups();
+        System.out.println("Checksum: " + sink);
+        if (savePath != null) {
+            benchmark.save(savePath);
+        }
+        if (baselinePath != null && !benchmark.compare(baselinePath, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every benchmark on the specified map.
+     *
+     * @param mapPath The path of the map file.
+     * @throws IOException If the map or a temporary output file cannot be read or written.
+     */
+    private void runAll(String mapPath) throws IOException {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> nameIds = new HashMap<>();
+        IntList roads = new IntList();
+        String[] route;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(mapPath), StandardCharsets.UTF_8)) {
+            route = reader.readLine().trim().split("\t");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                roads.add(nameIds.computeIfAbsent(parts[0], name -> addName(names, name)));
+                roads.add(nameIds.computeIfAbsent(parts[1], name -> addName(names, name)));
+                roads.add(Integer.parseInt(parts[2]));
+                roads.add(Integer.parseInt(parts[3]));
+            }
+        }
+        int roadCount = roads.size() / 4;
+        System.out.println("Map: " + mapPath + " (" + names.size() + " points, " + roadCount + " roads)");
+
+        measure("Graph.addRoad", roadCount, iteration -> {
+            Graph graph = new Graph();
+            for (int i = 0; i < roads.size(); i += 4) {
+                int start = graph.internPoint(names.get(roads.get(i)));
+                int end = graph.internPoint(names.get(roads.get(i + 1)));
+                graph.addRoad(start, end, roads.get(i + 2), roads.get(i + 3));
+            }
+            sink += graph.getVersion();
+        });
+
+        Graph graph = new Graph();
+        for (int i = 0; i < roads.size(); i += 4) {
+            graph.addRoad(graph.internPoint(names.get(roads.get(i))), graph.internPoint(names.get(roads.get(i + 1))), roads.get(i + 2), roads.get(i + 3));
+        }
+        Random random = new Random(1);
+        String[] queryStarts = new String[ROUTE_QUERIES];
+        String[] queryEnds = new String[ROUTE_QUERIES];
+        for (int i = 0; i < ROUTE_QUERIES; i++) {
+            queryStarts[i] = names.get(random.nextInt(names.size()));
+            queryEnds[i] = names.get(random.nextInt(names.size()));
+        }
+        graph.prepareContractionHierarchy();
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            graph.findShortestRoute(route[0], route[1], algorithm);
+            measure(ROUTE_BENCHMARK + algorithm + "]", 1, iteration ->
+                    sink += graph.findShortestRoute(queryStarts[iteration % ROUTE_QUERIES], queryEnds[iteration % ROUTE_QUERIES], algorithm).size());
+        }
+        for (MstAlgorithm algorithm : MstAlgorithm.values()) {
+            measure("Graph.buildBarelyConnectedMap[" + algorithm + "]", 1, iteration ->
+                    sink += graph.buildBarelyConnectedMap(route[0], algorithm).size());
+        }
+        measure("Graph.getTotalRoadDistance", TOTAL_DISTANCE_CALLS, iteration -> {
+            for (int i = 0; i < TOTAL_DISTANCE_CALLS; i++) {
+                sink += graph.getTotalRoadDistance();
+            }
+        });
+
+        Path output = Files.createTempFile("analysis", ".txt");
+        measure("RouteFinder.performAnalysis (with load)", 1, iteration -> {
+            RouteFinder routeFinder = new RouteFinder(mapPath, output.toString());
+            routeFinder.performAnalysis();
+            sink += output.toFile().length();
+            output.toFile().delete();
+        });
+        Files.deleteIfExists(output);
+    }
+
+    /**
+     * Registers a new point name.
+     *
+     * @param names The names registered so far.
+     * @param name The new name.
+     * @return The ID of the new name.
+     */
+    private static int addName(List<String> names, String name) {
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Runs one benchmark and records its throughput and allocation rate.
+     *
+     * @param name The name of the benchmark.
+     * @param unitsPerOperation The number of units of work one run of the operation does.
+     * @param operation The operation to measure.
+     */
+    private void measure(String name, int unitsPerOperation, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run(i);
+        }
+        System.gc();
+        long allocatedBefore = allocatedBytes();
+        long[] collectionsBefore = collectionTotals();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run(warmupIterations + i);
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long allocatedAfter = allocatedBytes();
+        long[] collectionsAfter = collectionTotals();
+        double units = (double) unitsPerOperation * iterations;
+        double bytesPerOperation = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : (allocatedAfter - allocatedBefore) / units;
+        results.add(new Result(name, units * 1e9 / Math.max(1, elapsed), bytesPerOperation,
+                collectionsAfter[0] - collectionsBefore[0], collectionsAfter[1] - collectionsBefore[1]));
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the threads that are alive. Threads that have
+     * ended are not counted.
+     *
+     * @return The allocated bytes, or -1 if the virtual machine does not measure allocation.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of garbage collections so far and the time they took, summed over all
+     * collectors.
+     *
+     * @return The number of collections followed by their time in milliseconds.
+     */
+    private static long[] collectionTotals() {
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionMillis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[] {collections, collectionMillis};
+    }
+
+    /**
+     * Prints the results as a table, followed by a note on what the allocation figures count.
+     */
+    private void print() {
+        System.out.println(String.format(Locale.US, "%-50s %16s %14s %14s %8s %8s", "Benchmark", "ops/s", "bytes/op", "MB/s", "GCs", "GC ms"));
+        for (Result result : results) {
+            String bytes = result.bytesPerOperation < 0 ? "n/a" : String.format(Locale.US, "%.1f", result.bytesPerOperation);
+            String rate = result.bytesPerOperation < 0 ? "n/a"
+                    : String.format(Locale.US, "%.1f", result.bytesPerOperation * result.operationsPerSecond / (1 << 20));
+            System.out.println(String.format(Locale.US, "%-50s %16.1f %14s %14s %8d %8d", result.name, result.operationsPerSecond, bytes, rate,
+                    result.collections, result.collectionMillis));
+        }
+        System.out.println("bytes/op counts only the threads alive before and after the measured iterations, so it misses");
+        System.out.println("threads that ended in between and is n/a if allocation is not tracked; GCs and GC ms cover all threads.");
+    }
+
+    /**
+     * Prints the throughput of every route algorithm relative to that of Dijkstra's algorithm.
+     */
+    private void printRouteSpeedups() {
+        double dijkstra = 0;
+        for (Result result : results) {
+            if (result.name.equals(ROUTE_BENCHMARK + RouteAlgorithm.DIJKSTRA + "]")) {
+                dijkstra = result.operationsPerSecond;
+            }
+        }
+        System.out.println(String.format(Locale.US, "%-50s %16s", "Route algorithm", "speedup"));
+        for (Result result : results) {
+            if (result.name.startsWith(ROUTE_BENCHMARK)) {
+                String algorithm = result.name.substring(ROUTE_BENCHMARK.length(), result.name.length() - 1);
+                System.out.println(String.format(Locale.US, "%-50s %15.2fx", algorithm, result.operationsPerSecond / dijkstra));
+            }
+        }
+    }
+
+    /**
+     * Writes the results as tab-separated lines of name, operations per second and bytes per operation.
+     *
+     * @param path The path of the file to write.
+     */
+    private void save(String path) {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            for (Result result : results) {
+                writer.write(result.name + "\t" + result.operationsPerSecond + "\t" + result.bytesPerOperation + "\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compares the results with saved ones and prints every benchmark that got slower than allowed.
+     *
+     * @param path The path of the saved results.
+     * @param tolerance The largest allowed drop of throughput, as a fraction of the saved throughput.
+     * @return True if no benchmark got slower than allowed, false otherwise.
+     */
+    private boolean compare(String path, double tolerance) {
+        Map<String, Double> baseline = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    baseline.put(parts[0], Double.parseDouble(parts[1]));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        boolean passed = true;
+        for (Result result : results) {
+            Double previous = baseline.get(result.name);
+            if (previous == null) {
+                continue;
+            }
+            double ratio = result.operationsPerSecond / previous;
+            if (ratio < 1 - tolerance) {
+                System.out.println(String.format(Locale.US, "Regression: %s runs at %.2f of the baseline throughput", result.name, ratio));
+                passed = false;
+            }
+        }
+        return passed;
+    }
+}
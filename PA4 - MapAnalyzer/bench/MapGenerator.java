@@ -0,0 +1,228 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The MapGenerator class writes synthetic road maps in the input format of MapAnalyzer, for
+ * benchmarks on maps far larger than the sample inputs. Three shapes are supported: a square
+ * grid of streets, a random geometric map where points close to each other in the unit square
+ * are joined, and a power-law map grown by preferential attachment, where a few hubs carry most
+ * of the roads. Points are named "P0", "P1" and so on; the route asked for runs from the first
+ * point to the last one, and the same seed always gives the same map.
+ */
+public class MapGenerator {
+    private static final int MAX_DISTANCE = 100;
+    private static final double GEOMETRIC_DEGREE = 8;
+    private static final int ATTACHMENTS = 2;
+
+    private final BufferedWriter writer;
+    private final Random random;
+    private int roadCount;
+
+    /**
+     * Constructs a MapGenerator that writes roads with the specified writer.
+     *
+     * @param writer The writer of the map file.
+     * @param seed The seed of the random distances and shapes.
+     */
+    private MapGenerator(BufferedWriter writer, long seed) {
+        this.writer = writer;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a map from the command line.
+     *
+     * @param args The shape ("grid", "geometric" or "powerlaw"), the number of points, the seed
+     *             and the path of the map file to write.
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: MapGenerator <grid|geometric|powerlaw> <points> <seed> <output>");
+            return;
+        }
+        if (!write(args[0], Integer.parseInt(args[1]), Long.parseLong(args[2]), args[3])) {
+            System.err.println("Unknown map shape: " + args[0]);
+        }
+    }
+
+    /**
+     * Writes a map of the specified shape to a file.
+     *
+     * @param shape The shape of the map: "grid", "geometric" or "powerlaw".
+     * @param pointCount The number of points of the map; a grid is rounded up to a full square.
+     * @param seed The seed of the random distances and shapes.
+     * @param path The path of the map file to write.
+     * @return True if the map was written, false if the shape is unknown or the file could not be written.
+     */
+    public static boolean write(String shape, int pointCount, long seed, String path) {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            MapGenerator generator = new MapGenerator(writer, seed);
+            switch (shape.toLowerCase(Locale.ROOT)) {
+                case "grid":
+                    generator.grid(pointCount);
+                    break;
+                case "geometric":
+                    generator.geometric(pointCount);
+                    break;
+                case "powerlaw":
+                    generator.powerLaw(pointCount);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes a square grid where every point is joined to its right and lower neighbours.
+     *
+     * @param pointCount The smallest number of points of the grid.
+     * @throws IOException If the map cannot be written.
+     */
+    private void grid(int pointCount) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(pointCount));
+        writeRoute(side * side);
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int point = row * side + column;
+                if (column + 1 < side) {
+                    writeRoad(point, point + 1, randomDistance());
+                }
+                if (row + 1 < side) {
+                    writeRoad(point, point + side, randomDistance());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a random geometric map: points are scattered over the unit square and every two points
+     * closer than a radius are joined, by a road as long as the distance between them. The radius is
+     * chosen so that a point has about GEOMETRIC_DEGREE roads, and a bucket grid of that cell size
+     * keeps the search for close points linear.
+     *
+     * @param pointCount The number of points.
+     * @throws IOException If the map cannot be written.
+     */
+    private void geometric(int pointCount) throws IOException {
+        double radius = Math.sqrt(GEOMETRIC_DEGREE / (Math.PI * pointCount));
+        int cellsPerSide = Math.max(1, (int) (1 / radius));
+        double[] xs = new double[pointCount];
+        double[] ys = new double[pointCount];
+        int[] cells = new int[pointCount];
+        int[] cellStarts = new int[cellsPerSide * cellsPerSide + 1];
+        for (int point = 0; point < pointCount; point++) {
+            xs[point] = random.nextDouble();
+            ys[point] = random.nextDouble();
+            cells[point] = cellOf(xs[point], cellsPerSide) * cellsPerSide + cellOf(ys[point], cellsPerSide);
+            cellStarts[cells[point] + 1]++;
+        }
+        for (int cell = 0; cell < cellsPerSide * cellsPerSide; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        int[] cellPoints = new int[pointCount];
+        int[] fill = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        for (int point = 0; point < pointCount; point++) {
+            cellPoints[fill[cells[point]]++] = point;
+        }
+
+        writeRoute(pointCount);
+        for (int point = 0; point < pointCount; point++) {
+            int cellX = cells[point] / cellsPerSide;
+            int cellY = cells[point] % cellsPerSide;
+            for (int x = Math.max(0, cellX - 1); x <= Math.min(cellsPerSide - 1, cellX + 1); x++) {
+                for (int y = Math.max(0, cellY - 1); y <= Math.min(cellsPerSide - 1, cellY + 1); y++) {
+                    int cell = x * cellsPerSide + y;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        int other = cellPoints[i];
+                        double length = Math.hypot(xs[point] - xs[other], ys[point] - ys[other]);
+                        if (other > point && length < radius) {
+                            writeRoad(point, other, 1 + (int) (length / radius * (MAX_DISTANCE - 1)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a power-law map grown by preferential attachment: every new point is joined to
+     * ATTACHMENTS points chosen with a probability proportional to their number of roads.
+     *
+     * @param pointCount The number of points.
+     * @throws IOException If the map cannot be written.
+     */
+    private void powerLaw(int pointCount) throws IOException {
+        writeRoute(pointCount);
+        int[] roadEnds = new int[2 * ATTACHMENTS * Math.max(pointCount, ATTACHMENTS + 1)];
+        int endCount = 0;
+        for (int point = 1; point <= Math.min(ATTACHMENTS, pointCount - 1); point++) {
+            for (int other = 0; other < point; other++) {
+                writeRoad(point, other, randomDistance());
+                roadEnds[endCount++] = point;
+                roadEnds[endCount++] = other;
+            }
+        }
+        for (int point = ATTACHMENTS + 1; point < pointCount; point++) {
+            int firstEnds = endCount;
+            for (int i = 0; i < ATTACHMENTS; i++) {
+                int other = roadEnds[random.nextInt(firstEnds)];
+                writeRoad(point, other, randomDistance());
+                roadEnds[endCount++] = point;
+                roadEnds[endCount++] = other;
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket of a coordinate along one side of the unit square.
+     *
+     * @param coordinate The coordinate, between 0 and 1.
+     * @param cellsPerSide The number of buckets along a side.
+     * @return The index of the bucket.
+     */
+    private static int cellOf(double coordinate, int cellsPerSide) {
+        return Math.min(cellsPerSide - 1, (int) (coordinate * cellsPerSide));
+    }
+
+    /**
+     * Gets a random road distance.
+     *
+     * @return A distance between 1 and MAX_DISTANCE.
+     */
+    private int randomDistance() {
+        return 1 + random.nextInt(MAX_DISTANCE);
+    }
+
+    /**
+     * Writes the first line of the map, which asks for the route from the first to the last point.
+     *
+     * @param pointCount The number of points of the map.
+     * @throws IOException If the map cannot be written.
+     */
+    private void writeRoute(int pointCount) throws IOException {
+        writer.write("P0\tP" + (pointCount - 1) + "\n");
+    }
+
+    /**
+     * Writes a road of the map with the next free road ID.
+     *
+     * @param start The number of the start point.
+     * @param end The number of the end point.
+     * @param distance The distance of the road.
+     * @throws IOException If the map cannot be written.
+     */
+    private void writeRoad(int start, int end, int distance) throws IOException {
+        writer.write("P" + start + "\tP" + end + "\t" + distance + "\t" + ++roadCount + "\n");
+    }
+}
@@ -0,0 +1,390 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The ContractionHierarchy class is a contraction hierarchy built over a compressed graph.
+ * Points are contracted one by one in the order of their edge difference, the number of shortcuts
+ * their contraction adds minus the number of roads it removes. A shortcut replaces the two edges
+ * through a contracted point whenever no witness route avoids that point. Every point is
+ * contracted, the most connected ones last, so afterwards every edge leads from a point to a point
+ * contracted later and the upward arcs never form a cycle. The distance between two points is then
+ * the shortest route that climbs from both ends to a common point.
+ * <p>
+ * While contracting, every remaining point keeps its neighbours and the lengths of the edges to
+ * them side by side, one edge per neighbour, so witness searches read them without indirection.
+ * The edges a point still has when it is contracted all lead to later points and become its
+ * upward arcs.
+ * <p>
+ * Contracting a large map takes seconds, far longer than a single Dijkstra search, so a hierarchy
+ * only pays off when many routes are asked on the same roads. It can be written to a snapshot and
+ * read back without contracting again.
+ */
+class ContractionHierarchy {
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final int pointCount;
+    private int[] upOffsets;
+    private int[] upTargets;
+    private int[] upWeights;
+
+    private int[][] neighborPoints;
+    private int[][] neighborWeights;
+    private int[] neighborCounts;
+    private int[] witnessDistances;
+    private int[] witnessMarks;
+    private IndexedHeap witnessQueue;
+    private int witnessMark;
+    private int[] targetMarks;
+    private int targetMark;
+
+    /**
+     * Builds the contraction hierarchy of the specified graph.
+     *
+     * @param graph The compressed graph to contract.
+     */
+    ContractionHierarchy(CsrGraph graph) {
+        this.pointCount = graph.getPointCount();
+        this.neighborPoints = new int[pointCount][];
+        this.neighborWeights = new int[pointCount][];
+        this.neighborCounts = new int[pointCount];
+        this.witnessDistances = new int[pointCount];
+        this.witnessMarks = new int[pointCount];
+        this.witnessQueue = new IndexedHeap(pointCount);
+        this.targetMarks = new int[pointCount];
+        for (int point = 0; point < pointCount; point++) {
+            int capacity = Math.max(2, graph.endArc(point) - graph.firstArc(point));
+            neighborPoints[point] = new int[capacity];
+            neighborWeights[point] = new int[capacity];
+        }
+
+        for (int point = 0; point < pointCount; point++) {
+            for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                if (point < graph.target(arc)) {
+                    addEdge(point, graph.target(arc), graph.weight(arc));
+                }
+            }
+        }
+
+        upOffsets = new int[pointCount + 1];
+        contractAll();
+        buildUpwardGraph();
+
+        neighborPoints = null;
+        neighborWeights = null;
+        neighborCounts = null;
+        witnessDistances = null;
+        witnessMarks = null;
+        witnessQueue = null;
+        targetMarks = null;
+    }
+
+    /**
+     * Constructs a ContractionHierarchy from upward arcs that are already built.
+     *
+     * @param upOffsets The index of the first upward arc of every point, followed by the number of arcs.
+     * @param upTargets The points the upward arcs lead to.
+     * @param upWeights The lengths of the upward arcs.
+     */
+    private ContractionHierarchy(int[] upOffsets, int[] upTargets, int[] upWeights) {
+        this.pointCount = upOffsets.length - 1;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+    }
+
+    /**
+     * Writes the upward arcs of the hierarchy to a snapshot.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        GraphSnapshot.writeInts(out, upOffsets, upOffsets.length);
+        GraphSnapshot.writeInts(out, upTargets, upTargets.length);
+        GraphSnapshot.writeInts(out, upWeights, upWeights.length);
+    }
+
+    /**
+     * Reads a hierarchy written by writeTo.
+     *
+     * @param in The reader of the snapshot, positioned at the hierarchy.
+     * @return The hierarchy read from the snapshot.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    static ContractionHierarchy readFrom(SnapshotReader in) throws IOException {
+        return new ContractionHierarchy(in.readInts(), in.readInts(), in.readInts());
+    }
+
+    /**
+     * Contracts every point, always picking the point with the smallest edge difference.
+     * Priorities go stale when neighbours are contracted, so a popped point is re-evaluated
+     * and put back if it is no longer the smallest.
+     */
+    private void contractAll() {
+        IndexedHeap queue = new IndexedHeap(pointCount);
+        for (int point = 0; point < pointCount; point++) {
+            queue.push(point, priorityKey(contract(point, false), point));
+        }
+
+        int[] contractedNeighbors = new int[pointCount];
+        while (!queue.isEmpty()) {
+            int point = queue.poll();
+            int priority = contract(point, false) + contractedNeighbors[point];
+            if (!queue.isEmpty() && priorityKey(priority, point) > queue.peekKey()) {
+                queue.push(point, priorityKey(priority, point));
+                continue;
+            }
+            contract(point, true);
+            upOffsets[point + 1] = neighborCounts[point];
+            for (int i = 0; i < neighborCounts[point]; i++) {
+                int neighbor = neighborPoints[point][i];
+                removeNeighbor(neighbor, point);
+                contractedNeighbors[neighbor]++;
+            }
+        }
+    }
+
+    /**
+     * Drops a contracted point from the neighbours of a remaining point, so that later
+     * contractions and witness searches only look at remaining edges.
+     *
+     * @param point The ID of a point that is not contracted.
+     * @param neighbor The ID of the contracted neighbour.
+     */
+    private void removeNeighbor(int point, int neighbor) {
+        int last = neighborCounts[point] - 1;
+        for (int i = 0; i <= last; i++) {
+            if (neighborPoints[point][i] == neighbor) {
+                neighborPoints[point][i] = neighborPoints[point][last];
+                neighborWeights[point][i] = neighborWeights[point][last];
+                neighborCounts[point] = last;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Packs a priority and a point into one key ordered by priority, then by point ID.
+     *
+     * @param priority The priority of the point.
+     * @param point The ID of the point.
+     * @return The packed key.
+     */
+    private static long priorityKey(int priority, int point) {
+        return ((long) priority << 32) | point;
+    }
+
+    /**
+     * Simulates or performs the contraction of a point. For every pair of remaining neighbours,
+     * a shortcut is needed unless a witness search finds a route between them that avoids the point
+     * and is not longer than the route through it.
+     *
+     * @param point The ID of the point to contract.
+     * @param addShortcuts True to add the needed shortcuts, false to only count them.
+     * @return The edge difference of the point: needed shortcuts minus removed edges.
+     */
+    private int contract(int point, boolean addShortcuts) {
+        int count = neighborCounts[point];
+        int[] neighbors = Arrays.copyOf(neighborPoints[point], count);
+        int[] weights = Arrays.copyOf(neighborWeights[point], count);
+
+        int shortcuts = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int maxDistance = 0;
+            targetMark++;
+            for (int j = i + 1; j < count; j++) {
+                maxDistance = Math.max(maxDistance, weights[i] + weights[j]);
+                targetMarks[neighbors[j]] = targetMark;
+            }
+            searchWitnesses(neighbors[i], point, maxDistance, count - i - 1,
+                    addShortcuts ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT);
+            for (int j = i + 1; j < count; j++) {
+                int viaDistance = weights[i] + weights[j];
+                if (witnessMarks[neighbors[j]] == witnessMark && witnessDistances[neighbors[j]] <= viaDistance) {
+                    continue;
+                }
+                shortcuts++;
+                if (addShortcuts) {
+                    addEdge(neighbors[i], neighbors[j], viaDistance);
+                }
+            }
+        }
+        return shortcuts - count;
+    }
+
+    /**
+     * Runs a Dijkstra search from a neighbour of the contracted point over the remaining points,
+     * avoiding the contracted point, until every marked target is settled or up to the specified
+     * distance or settle limit. Stopping at the limits only means that some unnecessary shortcuts
+     * are added.
+     *
+     * @param source The ID of the neighbour to search from.
+     * @param avoided The ID of the point being contracted.
+     * @param maxDistance The distance beyond which witnesses are not needed.
+     * @param targetCount The number of neighbours marked as targets of the search.
+     * @param settleLimit The number of points after which the search gives up.
+     */
+    private void searchWitnesses(int source, int avoided, int maxDistance, int targetCount, int settleLimit) {
+        witnessMark++;
+        witnessQueue.clear();
+        witnessMarks[source] = witnessMark;
+        witnessDistances[source] = 0;
+        witnessQueue.push(source, priorityKey(0, source));
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && settled < settleLimit) {
+            int point = witnessQueue.poll();
+            int distance = witnessDistances[point];
+            if (distance > maxDistance) {
+                break;
+            }
+            if (targetMarks[point] == targetMark && --targetCount == 0) {
+                break;
+            }
+            settled++;
+            int[] nexts = neighborPoints[point];
+            int[] weights = neighborWeights[point];
+            for (int i = 0; i < neighborCounts[point]; i++) {
+                int next = nexts[i];
+                if (next == avoided) {
+                    continue;
+                }
+                int newDistance = distance + weights[i];
+                if (witnessMarks[next] != witnessMark || newDistance < witnessDistances[next]) {
+                    witnessMarks[next] = witnessMark;
+                    witnessDistances[next] = newDistance;
+                    witnessQueue.push(next, priorityKey(newDistance, next));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an edge between two points, either an original road or a shortcut. If the points are
+     * already joined, that edge is shortened instead, so that parallel edges do not pile up.
+     *
+     * @param from The ID of the first end of the edge.
+     * @param to The ID of the second end of the edge.
+     * @param weight The length of the edge.
+     */
+    private void addEdge(int from, int to, int weight) {
+        if (!shortenEdge(from, to, weight)) {
+            addNeighbor(from, to, weight);
+            addNeighbor(to, from, weight);
+        } else {
+            shortenEdge(to, from, weight);
+        }
+    }
+
+    /**
+     * Shortens the edge from a point to a neighbour if it is longer than the specified length.
+     *
+     * @param point The ID of the point.
+     * @param neighbor The ID of the neighbour.
+     * @param weight The new length of the edge.
+     * @return True if the points are already joined, false otherwise.
+     */
+    private boolean shortenEdge(int point, int neighbor, int weight) {
+        for (int i = 0; i < neighborCounts[point]; i++) {
+            if (neighborPoints[point][i] == neighbor) {
+                neighborWeights[point][i] = Math.min(neighborWeights[point][i], weight);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records a neighbour of a point and the length of the edge to it.
+     *
+     * @param point The ID of the point.
+     * @param neighbor The ID of the neighbour.
+     * @param weight The length of the edge.
+     */
+    private void addNeighbor(int point, int neighbor, int weight) {
+        int count = neighborCounts[point];
+        if (count == neighborPoints[point].length) {
+            neighborPoints[point] = Arrays.copyOf(neighborPoints[point], count * 2);
+            neighborWeights[point] = Arrays.copyOf(neighborWeights[point], count * 2);
+        }
+        neighborPoints[point][count] = neighbor;
+        neighborWeights[point][count] = weight;
+        neighborCounts[point] = count + 1;
+    }
+
+    /**
+     * Stores the edges every point had left when it was contracted as its upward arcs. The arc
+     * counts were recorded in the offsets while contracting.
+     */
+    private void buildUpwardGraph() {
+        for (int point = 0; point < pointCount; point++) {
+            upOffsets[point + 1] += upOffsets[point];
+        }
+        upTargets = new int[upOffsets[pointCount]];
+        upWeights = new int[upOffsets[pointCount]];
+        for (int point = 0; point < pointCount; point++) {
+            int count = upOffsets[point + 1] - upOffsets[point];
+            System.arraycopy(neighborPoints[point], 0, upTargets, upOffsets[point], count);
+            System.arraycopy(neighborWeights[point], 0, upWeights, upOffsets[point], count);
+        }
+    }
+
+    /**
+     * Gets the number of points in the hierarchy.
+     *
+     * @return The number of points.
+     */
+    int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Gets the number of edges in the hierarchy, shortcuts included.
+     *
+     * @return The number of edges.
+     */
+    int getEdgeCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Gets the index of the first upward arc of the specified point.
+     *
+     * @param point The ID of the point.
+     * @return The index of the first upward arc.
+     */
+    int firstUpArc(int point) {
+        return upOffsets[point];
+    }
+
+    /**
+     * Gets the index just past the last upward arc of the specified point.
+     *
+     * @param point The ID of the point.
+     * @return The exclusive end index of the upward arcs.
+     */
+    int endUpArc(int point) {
+        return upOffsets[point + 1];
+    }
+
+    /**
+     * Gets the point the specified upward arc leads to.
+     *
+     * @param arc The index of the upward arc.
+     * @return The ID of the higher point.
+     */
+    int upTarget(int arc) {
+        return upTargets[arc];
+    }
+
+    /**
+     * Gets the length of the specified upward arc.
+     *
+     * @param arc The index of the upward arc.
+     * @return The length of the arc.
+     */
+    int upWeight(int arc) {
+        return upWeights[arc];
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The CsrGraph class is an immutable compressed-sparse-row (CSR) view of the roads of a graph.
+ * Points are identified by int IDs and every road is stored as two arcs, one in each direction,
+ * in flat int arrays. The arcs of a point keep the order in which their roads were added.
+ * <p>
+ * The arrays come from the GraphStore of the graph: int arrays on the heap by default, or files
+ * mapped outside the heap, where a graph read from a snapshot uses the mapped snapshot itself.
+ */
+class CsrGraph {
+    private final int pointCount;
+    private final IntArray offsets;
+    private final IntArray targets;
+    private final IntArray weights;
+    private final IntArray roadIds;
+
+    /**
+     * Constructs a CsrGraph from the given road arrays. Road i goes from roadStarts[i]
+     * to roadEnds[i]; both directions of it become arcs of the graph.
+     *
+     * @param store The store the arrays of the graph are allocated in.
+     * @param pointCount The number of points in the graph.
+     * @param roadCount The number of roads in the given arrays, at most Graph.MAX_ROAD_COUNT.
+     * @param roadStarts The starting point IDs of the roads.
+     * @param roadEnds The ending point IDs of the roads.
+     * @param roadDistances The distances of the roads.
+     * @param roadIdentifiers The unique identifiers of the roads.
+     */
+    CsrGraph(GraphStore store, int pointCount, int roadCount, IntArray roadStarts, IntArray roadEnds,
+             IntArray roadDistances, IntArray roadIdentifiers) {
+        this.pointCount = pointCount;
+        this.offsets = store.allocate(pointCount + 1);
+        this.targets = store.allocate(2 * roadCount);
+        this.weights = store.allocate(2 * roadCount);
+        this.roadIds = store.allocate(2 * roadCount);
+
+        int[] next = new int[pointCount + 1];
+        for (int i = 0; i < roadCount; i++) {
+            next[roadStarts.get(i) + 1]++;
+            next[roadEnds.get(i) + 1]++;
+        }
+        for (int i = 0; i < pointCount; i++) {
+            next[i + 1] += next[i];
+        }
+        for (int i = 0; i <= pointCount; i++) {
+            offsets.set(i, next[i]);
+        }
+
+        for (int i = 0; i < roadCount; i++) {
+            int forward = next[roadStarts.get(i)]++;
+            targets.set(forward, roadEnds.get(i));
+            weights.set(forward, roadDistances.get(i));
+            roadIds.set(forward, roadIdentifiers.get(i));
+
+            int reverse = next[roadEnds.get(i)]++;
+            targets.set(reverse, roadStarts.get(i));
+            weights.set(reverse, roadDistances.get(i));
+            roadIds.set(reverse, roadIdentifiers.get(i));
+        }
+    }
+
+    /**
+     * Constructs a CsrGraph from arrays that are already in compressed form.
+     *
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     * @param weights The length of every arc.
+     * @param roadIds The ID of the road behind every arc.
+     */
+    private CsrGraph(IntArray offsets, IntArray targets, IntArray weights, IntArray roadIds) {
+        this.pointCount = offsets.length() - 1;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.roadIds = roadIds;
+    }
+
+    /**
+     * Checks whether another graph has the same points and arcs as this one, whatever their lengths.
+     *
+     * @param other The graph to compare with.
+     * @return True if both graphs have the same arcs between the same points in the same order, false otherwise.
+     */
+    boolean hasSameLayout(CsrGraph other) {
+        return offsets.contentEquals(other.offsets) && targets.contentEquals(other.targets);
+    }
+
+    /**
+     * Writes the arrays of the graph to a snapshot.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        GraphSnapshot.writeInts(out, offsets, offsets.length());
+        GraphSnapshot.writeInts(out, targets, targets.length());
+        GraphSnapshot.writeInts(out, weights, weights.length());
+        GraphSnapshot.writeInts(out, roadIds, roadIds.length());
+    }
+
+    /**
+     * Reads a graph written by writeTo. In a store on a directory the arrays are not copied: the
+     * graph reads them from their mappings of the file, which must not change afterwards.
+     *
+     * @param in The reader of the snapshot, positioned at the graph.
+     * @param store The store the arrays are read into.
+     * @return The graph read from the snapshot.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    static CsrGraph readFrom(SnapshotReader in, GraphStore store) throws IOException {
+        return new CsrGraph(store.viewInts(in), store.viewInts(in), store.viewInts(in), store.viewInts(in));
+    }
+
+    /**
+     * Gets the number of points in the graph.
+     *
+     * @return The number of points.
+     */
+    int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Gets the number of arcs in the graph, which is twice the number of roads.
+     *
+     * @return The number of arcs.
+     */
+    int getArcCount() {
+        return targets.length();
+    }
+
+    /**
+     * Gets the index of the first arc leaving the specified point.
+     *
+     * @param point The ID of the point.
+     * @return The index of the first arc of the point.
+     */
+    int firstArc(int point) {
+        return offsets.get(point);
+    }
+
+    /**
+     * Gets the index just past the last arc leaving the specified point.
+     *
+     * @param point The ID of the point.
+     * @return The exclusive end index of the arcs of the point.
+     */
+    int endArc(int point) {
+        return offsets.get(point + 1);
+    }
+
+    /**
+     * Gets the point the specified arc leads to.
+     *
+     * @param arc The index of the arc.
+     * @return The ID of the target point.
+     */
+    int target(int arc) {
+        return targets.get(arc);
+    }
+
+    /**
+     * Gets the distance of the specified arc.
+     *
+     * @param arc The index of the arc.
+     * @return The distance of the arc.
+     */
+    int weight(int arc) {
+        return weights.get(arc);
+    }
+
+    /**
+     * Gets the road ID of the specified arc.
+     *
+     * @param arc The index of the arc.
+     * @return The unique identifier of the road the arc belongs to.
+     */
+    int roadId(int arc) {
+        return roadIds.get(arc);
+    }
+}
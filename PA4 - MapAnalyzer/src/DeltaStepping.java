@@ -0,0 +1,304 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * The DeltaStepping class measures distances to the ending point of a route query with the
+ * delta-stepping algorithm, which relaxes many roads at once on all cores. Points are kept in
+ * buckets of distance width delta; the roads not longer than delta, the light ones, are relaxed
+ * again and again while the lowest bucket refills, and the heavy ones once when it is empty.
+ * The roads of every point are listed light ones first, so each pass reads only its own kind.
+ * Distances are lowered with compare-and-set, so the worker threads need no locks. The buckets are
+ * a cycle just long enough to hold every distance a relaxation can reach, and a point stays in a
+ * bucket it has left until it is taken out.
+ * <p>
+ * The search runs from the ending point until the bucket of the starting point is done, so the
+ * distances are exact up to the end of that bucket and are cut off there beyond it. As the lower
+ * bound of a restricted Dijkstra search they keep it on the points of shortest routes, where it
+ * chooses among routes of equal length just like a full search.
+ * <p>
+ * A bucket is relaxed in parallel only when it holds more than one chunk of points, and every
+ * light road may be relaxed more than once, so on a single core, or on maps whose buckets stay
+ * small, the search does more work than Dijkstra's algorithm and is slower. It is experimental:
+ * it has only been measured on a single core, where it loses to Dijkstra's algorithm on every
+ * map, and whether it wins on many cores has not been measured. The arrays are sized once for
+ * the graph and reused by every query, so an instance must not be shared between threads that
+ * query at the same time.
+ */
+class DeltaStepping implements LowerBound {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int MAX_BUCKETS = 1 << 16;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final CsrGraph graph;
+    private final int delta;
+    private final IntList[] buckets;
+    private final int[] orderedArcs;
+    private final int[] heavyStarts;
+    private final AtomicIntegerArray distances;
+    private final int[] frontierMarks;
+    private final int[] reachedMarks;
+    private final IntList reached = new IntList();
+    private final IntList frontier = new IntList();
+    private final IntList settled = new IntList();
+    private IntList[] loweredLists = new IntList[0];
+    private long[] scannedCounts = new long[0];
+    private int mark;
+    private int query;
+    private long radius;
+    private long settledCount;
+    private long relaxedCount;
+    private long pushCount;
+    private long pollCount;
+    private long staleCount;
+    private int peakSize;
+
+    /**
+     * Constructs a DeltaStepping for the specified graph. Delta is the mean road length, raised if
+     * needed so that the cycle of buckets stays short.
+     *
+     * @param graph The compressed graph to search; every road must be longer than zero.
+     */
+    DeltaStepping(CsrGraph graph) {
+        int pointCount = graph.getPointCount();
+        long totalWeight = 0;
+        int maxWeight = 1;
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            totalWeight += graph.weight(arc);
+            maxWeight = Math.max(maxWeight, graph.weight(arc));
+        }
+        long meanWeight = graph.getArcCount() == 0 ? 1 : totalWeight / graph.getArcCount();
+        this.graph = graph;
+        this.delta = (int) Math.max(Math.max(1, meanWeight), (maxWeight + MAX_BUCKETS - 3L) / (MAX_BUCKETS - 2));
+        this.orderedArcs = new int[graph.getArcCount()];
+        this.heavyStarts = new int[pointCount];
+        for (int point = 0; point < pointCount; point++) {
+            int light = graph.firstArc(point);
+            int heavy = graph.endArc(point);
+            for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                if (graph.weight(arc) <= delta) {
+                    orderedArcs[light++] = arc;
+                } else {
+                    orderedArcs[--heavy] = arc;
+                }
+            }
+            heavyStarts[point] = light;
+        }
+        this.buckets = new IntList[maxWeight / delta + 2];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new IntList();
+        }
+        this.distances = new AtomicIntegerArray(pointCount);
+        for (int point = 0; point < pointCount; point++) {
+            distances.set(point, UNREACHED);
+        }
+        this.frontierMarks = new int[pointCount];
+        this.reachedMarks = new int[pointCount];
+    }
+
+    /**
+     * Gets the graph this search runs on.
+     *
+     * @return The compressed graph.
+     */
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Computes distances from the ending point bucket by bucket, until the bucket of the starting
+     * point is done and its distance is final.
+     *
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     * @return The length of the shortest route, or Long.MAX_VALUE if the points are not connected.
+     */
+    long aim(int source, int target) {
+        reset();
+        distances.set(target, 0);
+        reachedMarks[target] = query;
+        reached.add(target);
+        buckets[0].add(target);
+        pushCount++;
+        int pending = 1;
+        radius = Long.MAX_VALUE;
+        for (long bucketIndex = 0; pending > 0; bucketIndex++) {
+            IntList bucket = buckets[(int) (bucketIndex % buckets.length)];
+            if (bucket.size() == 0) {
+                continue;
+            }
+            settled.clear();
+            while (bucket.size() > 0) {
+                pending -= bucket.size();
+                takeFrontier(bucket, bucketIndex, frontier);
+                for (int i = 0; i < frontier.size(); i++) {
+                    settled.add(frontier.get(i));
+                }
+                pending += relax(frontier, true);
+            }
+            takeFrontier(settled, bucketIndex, frontier);
+            settledCount += frontier.size();
+            pending += relax(frontier, false);
+            long sourceDistance = distances.get(source);
+            if (sourceDistance != UNREACHED && sourceDistance / delta <= bucketIndex) {
+                radius = (bucketIndex + 1) * delta;
+                return sourceDistance;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the distance from the specified point to the ending point. Distances beyond the last
+     * bucket of the search are cut off at the end of that bucket.
+     *
+     * @param point The ID of the point.
+     * @return The shortest distance to the ending point if it lies within the searched buckets, the end of the last bucket otherwise.
+     */
+    @Override
+    public long toTarget(int point) {
+        return Math.min(distances.get(point), radius);
+    }
+
+    /**
+     * Forgets the distances of the last search.
+     */
+    private void reset() {
+        for (int i = 0; i < reached.size(); i++) {
+            distances.set(reached.get(i), UNREACHED);
+        }
+        reached.clear();
+        for (IntList bucket : buckets) {
+            bucket.clear();
+        }
+        query++;
+    }
+
+    /**
+     * Empties a bucket into a list of the distinct points still belonging to it.
+     *
+     * @param bucket The bucket to empty.
+     * @param bucketIndex The number of the bucket, counting from distance zero.
+     * @param points The list the points whose distance lies in the bucket are put into, each once.
+     */
+    private void takeFrontier(IntList bucket, long bucketIndex, IntList points) {
+        mark++;
+        points.clear();
+        pollCount += bucket.size();
+        peakSize = Math.max(peakSize, bucket.size());
+        for (int i = 0; i < bucket.size(); i++) {
+            int point = bucket.get(i);
+            if (frontierMarks[point] != mark && distances.get(point) / delta == bucketIndex) {
+                frontierMarks[point] = mark;
+                points.add(point);
+            }
+        }
+        staleCount += bucket.size() - points.size();
+        bucket.clear();
+    }
+
+    /**
+     * Relaxes the light or the heavy roads of a set of points, in parallel chunks if there is more
+     * than one, then puts every point whose distance went down into the bucket of its new distance.
+     *
+     * @param points The points to relax the roads of.
+     * @param light True to relax the roads not longer than delta, false to relax the longer ones.
+     * @return The number of points put into buckets.
+     */
+    private int relax(IntList points, boolean light) {
+        int chunkCount = (points.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (loweredLists.length < chunkCount) {
+            IntList[] lists = new IntList[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                lists[chunk] = chunk < loweredLists.length ? loweredLists[chunk] : new IntList();
+            }
+            loweredLists = lists;
+            scannedCounts = new long[chunkCount];
+        }
+        if (chunkCount > 1) {
+            IntStream.range(0, chunkCount).parallel().forEach(chunk -> relaxChunk(points, chunk, light));
+        } else if (chunkCount == 1) {
+            relaxChunk(points, 0, light);
+        }
+
+        int added = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            IntList lowered = loweredLists[chunk];
+            relaxedCount += scannedCounts[chunk];
+            for (int i = 0; i < lowered.size(); i++) {
+                int point = lowered.get(i);
+                if (reachedMarks[point] != query) {
+                    reachedMarks[point] = query;
+                    reached.add(point);
+                }
+                buckets[distances.get(point) / delta % buckets.length].add(point);
+                added++;
+            }
+        }
+        pushCount += added;
+        return added;
+    }
+
+    /**
+     * Relaxes the light or the heavy roads of one chunk of points and lists the points whose
+     * distance went down in the list of the chunk.
+     *
+     * @param points The points to relax the roads of.
+     * @param chunk The index of the chunk.
+     * @param light True to relax the roads not longer than delta, false to relax the longer ones.
+     */
+    private void relaxChunk(IntList points, int chunk, boolean light) {
+        IntList lowered = loweredLists[chunk];
+        lowered.clear();
+        long scanned = 0;
+        for (int i = chunk * CHUNK_SIZE; i < Math.min(points.size(), (chunk + 1) * CHUNK_SIZE); i++) {
+            int point = points.get(i);
+            int distance = distances.get(point);
+            int first = light ? graph.firstArc(point) : heavyStarts[point];
+            int end = light ? heavyStarts[point] : graph.endArc(point);
+            scanned += end - first;
+            for (int index = first; index < end; index++) {
+                int arc = orderedArcs[index];
+                if (lower(graph.target(arc), distance + graph.weight(arc))) {
+                    lowered.add(graph.target(arc));
+                }
+            }
+        }
+        scannedCounts[chunk] = scanned;
+    }
+
+    /**
+     * Lowers the distance of a point if the new distance is smaller.
+     *
+     * @param point The ID of the point.
+     * @param distance The new distance.
+     * @return True if the distance was lowered, false otherwise.
+     */
+    private boolean lower(int point, int distance) {
+        while (true) {
+            int current = distances.get(point);
+            if (distance >= current) {
+                return false;
+            }
+            if (distances.compareAndSet(point, current, distance)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands the effort counted since the last hand-over to the specified counters as one search,
+     * counting every point of a finished bucket as settled and every bucket entry of a point that
+     * has moved on as stale, and starts counting again.
+     *
+     * @param counters The counters to add the effort to.
+     */
+    void drainCounts(Metrics.Counters counters) {
+        counters.add(settledCount, relaxedCount, pushCount, pollCount, staleCount, peakSize);
+        settledCount = 0;
+        relaxedCount = 0;
+        pushCount = 0;
+        pollCount = 0;
+        staleCount = 0;
+        peakSize = 0;
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The DistanceTable class holds the shortest distances from a list of source points to a list of
+ * target points, one row per source. It can be written as tab-separated text for people and
+ * spreadsheets, or as a compact big-endian binary file for other programs.
+ */
+class DistanceTable {
+    /**
+     * The distance stored for a target that cannot be reached from a source.
+     */
+    static final int UNREACHABLE = -1;
+
+    private static final int MAGIC = 0x44544231;
+    private static final int VERSION = 1;
+
+    private final List<String> sources;
+    private final List<String> targets;
+    private final int[] distances;
+
+    /**
+     * Constructs a DistanceTable from computed distances.
+     *
+     * @param sources The names of the source points.
+     * @param targets The names of the target points.
+     * @param distances The distances, where the distance from source i to target j is at i * targets.size() + j.
+     */
+    DistanceTable(List<String> sources, List<String> targets, int[] distances) {
+        this.sources = sources;
+        this.targets = targets;
+        this.distances = distances;
+    }
+
+    /**
+     * Gets the distance from a source point to a target point.
+     *
+     * @param source The index of the source in the list of sources.
+     * @param target The index of the target in the list of targets.
+     * @return The shortest distance, or UNREACHABLE if the points are not connected.
+     */
+    int getDistance(int source, int target) {
+        return distances[source * targets.size() + target];
+    }
+
+    /**
+     * Writes the table as tab-separated text: a header line with the target names, then one line
+     * per source starting with its name. Unreachable targets are written as -1.
+     *
+     * @param path The path of the file to write.
+     * @return True if the file was written, false otherwise.
+     */
+    boolean writeTsv(String path) {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            for (String target : targets) {
+                out.write('\t');
+                out.write(target);
+            }
+            out.write('\n');
+            for (int i = 0; i < sources.size(); i++) {
+                out.write(sources.get(i));
+                for (int j = 0; j < targets.size(); j++) {
+                    out.write('\t');
+                    out.write(Integer.toString(getDistance(i, j)));
+                }
+                out.write('\n');
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the table as a binary file: a magic number, a version, the source and target counts,
+     * the length-prefixed UTF-8 names of the sources and targets, then the distances row by row.
+     *
+     * @param path The path of the file to write.
+     * @return True if the file was written, false otherwise.
+     */
+    boolean writeBinary(String path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sources.size());
+            out.writeInt(targets.size());
+            for (String source : sources) {
+                GraphSnapshot.writeBytes(out, source.getBytes(StandardCharsets.UTF_8));
+            }
+            for (String target : targets) {
+                GraphSnapshot.writeBytes(out, target.getBytes(StandardCharsets.UTF_8));
+            }
+            for (int distance : distances) {
+                out.writeInt(distance);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,465 @@
+import java.util.*;
+
+/**
+ * The DynamicSpanningForest class keeps the minimum spanning forest of a changing road network,
+ * with roads compared by distance, then by road ID, like every spanning tree algorithm of the graph.
+ * Roads can be added, removed and re-measured one at a time, and the forest is repaired locally
+ * instead of being built again:
+ * <ul>
+ * <li>An added road joins the forest when it connects two trees. Otherwise it closes a cycle, and
+ * by the cycle property it replaces the longest tree road on that cycle if it is shorter.</li>
+ * <li>A removed tree road splits its tree in two. The smaller part is found by searching both
+ * parts at once, and the shortest road leaving it, if any, reconnects the two parts.</li>
+ * <li>A re-measured road is removed and added again with its new distance.</li>
+ * </ul>
+ * Each change costs time proportional to the tree it touches rather than to the whole map.
+ */
+class DynamicSpanningForest {
+    private static final int START = 0;
+    private static final int END = 1;
+
+    private final NameDictionary pointNames;
+    private int[][] incidentRoads = new int[16][];
+    private int[] incidentCounts = new int[16];
+    private int[][] treeRoads = new int[16][];
+    private int[] treeCounts = new int[16];
+    private int[] marks = new int[16];
+    private int[] parentRoads = new int[16];
+    private int mark;
+
+    private int[] roadStarts = new int[16];
+    private int[] roadEnds = new int[16];
+    private int[] roadDistances = new int[16];
+    private int[] roadIds = new int[16];
+    private boolean[] inTree = new boolean[16];
+    private int[] incidentPositions = new int[32];
+    private int[] treePositions = new int[32];
+    private int slotCount;
+    private final IntList freeSlots = new IntList();
+    private final RoadIndex slotIndex = new RoadIndex();
+
+    /**
+     * Constructs a DynamicSpanningForest from the roads of a graph and their minimum spanning forest.
+     *
+     * @param pointNames The names of the points, which the forest keeps and adds new points to.
+     * @param roadCount The number of roads.
+     * @param roadStarts The start point ID of each road.
+     * @param roadEnds The end point ID of each road.
+     * @param roadDistances The distance of each road.
+     * @param roadIdentifiers The ID of each road.
+     * @param inForest Whether each road is in the minimum spanning forest.
+     */
+    DynamicSpanningForest(NameDictionary pointNames, int roadCount, IntArray roadStarts, IntArray roadEnds,
+                          IntArray roadDistances, IntArray roadIdentifiers, boolean[] inForest) {
+        this.pointNames = pointNames;
+        for (int point = 0; point < pointNames.size(); point++) {
+            addPointSpace(point);
+        }
+        for (int road = 0; road < roadCount; road++) {
+            int slot = insertRoad(roadStarts.get(road), roadEnds.get(road), roadDistances.get(road), roadIdentifiers.get(road));
+            if (inForest[road]) {
+                joinTree(slot);
+            }
+        }
+    }
+
+    /**
+     * Adds a road and updates the forest. A road that connects two trees joins the forest; a road
+     * that closes a cycle replaces the longest tree road on the cycle if it is shorter than that road.
+     *
+     * @param road The road to add.
+     * @return True if the road was added, false if a road with the same ID already exists.
+     */
+    public boolean addRoad(Road road) {
+        if (slotIndex.get(road.getRoadId()) != -1) {
+            return false;
+        }
+        int start = internPoint(road.getStartPoint());
+        int end = internPoint(road.getEndPoint());
+        int slot = insertRoad(start, end, road.getDistance(), road.getRoadId());
+        if (start == end) {
+            return true;
+        }
+        if (!findTreePath(start, end)) {
+            joinTree(slot);
+            return true;
+        }
+        int longest = -1;
+        for (int point = end; point != start; point = otherEnd(parentRoads[point], point)) {
+            if (longest == -1 || key(parentRoads[point]) > key(longest)) {
+                longest = parentRoads[point];
+            }
+        }
+        if (key(slot) < key(longest)) {
+            leaveTree(longest);
+            joinTree(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a road and updates the forest. When a tree road is removed, the shortest road
+     * between the two parts of its tree takes its place.
+     *
+     * @param roadId The ID of the road to remove.
+     * @return True if the road was removed, false if there is no road with that ID.
+     */
+    public boolean removeRoad(int roadId) {
+        int slot = slotIndex.get(roadId);
+        if (slot == -1) {
+            return false;
+        }
+        slotIndex.remove(roadId);
+        unlink(incidentRoads, incidentCounts, incidentPositions, slot);
+        freeSlots.add(slot);
+        if (inTree[slot]) {
+            leaveTree(slot);
+            reconnect(roadStarts[slot], roadEnds[slot]);
+        }
+        return true;
+    }
+
+    /**
+     * Changes the distance of a road and updates the forest.
+     *
+     * @param roadId The ID of the road to re-measure.
+     * @param distance The new distance of the road.
+     * @return True if the road was changed, false if there is no road with that ID.
+     */
+    public boolean setRoadDistance(int roadId, int distance) {
+        int slot = slotIndex.get(roadId);
+        if (slot == -1) {
+            return false;
+        }
+        Road road = new Road(pointNames, roadStarts[slot], roadEnds[slot], distance, roadId);
+        removeRoad(roadId);
+        return addRoad(road);
+    }
+
+    /**
+     * Gets the roads of the tree containing the specified point, which is the barely connected
+     * map of that point. The roads are sorted by distance and road ID.
+     *
+     * @param startingPoint The name of the point.
+     * @return The tree roads, or an empty list if there is no such point.
+     */
+    public List<Road> getRoads(String startingPoint) {
+        List<Road> roads = new ArrayList<>();
+        int start = pointNames.find(startingPoint);
+        if (start == -1) {
+            return roads;
+        }
+        IntList points = collectTree(start, nextMark());
+        IntList slots = new IntList();
+        for (int i = 0; i < points.size(); i++) {
+            int point = points.get(i);
+            for (int j = 0; j < treeCounts[point]; j++) {
+                int slot = treeRoads[point][j];
+                if (roadStarts[slot] == point) {
+                    slots.add(slot);
+                }
+            }
+        }
+        long[] keys = new long[slots.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(slots.get(i));
+        }
+        Arrays.sort(keys);
+        for (long key : keys) {
+            int slot = slotIndex.get((int) key ^ Integer.MIN_VALUE);
+            roads.add(new Road(pointNames, roadStarts[slot], roadEnds[slot], roadDistances[slot], roadIds[slot]));
+        }
+        return roads;
+    }
+
+    /**
+     * Searches the forest for the path between two points, recording for every point reached
+     * the tree road it was reached through.
+     *
+     * @param from The ID of the point to search from.
+     * @param to The ID of the point to search for.
+     * @return True if the points are in the same tree, false otherwise.
+     */
+    private boolean findTreePath(int from, int to) {
+        int searchMark = nextMark();
+        IntList pending = new IntList();
+        marks[from] = searchMark;
+        pending.add(from);
+        for (int i = 0; i < pending.size(); i++) {
+            int point = pending.get(i);
+            for (int j = 0; j < treeCounts[point]; j++) {
+                int slot = treeRoads[point][j];
+                int next = otherEnd(slot, point);
+                if (marks[next] != searchMark) {
+                    marks[next] = searchMark;
+                    parentRoads[next] = slot;
+                    if (next == to) {
+                        return true;
+                    }
+                    pending.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reconnects the two parts of a tree split by a removed road. Both parts are searched one point
+     * at a time in turn until the smaller one is complete; the shortest road from it to a point
+     * outside it then joins the forest.
+     *
+     * @param first A point of the first part.
+     * @param second A point of the second part.
+     */
+    private void reconnect(int first, int second) {
+        int firstMark = nextMark();
+        int secondMark = nextMark();
+        IntList firstPart = new IntList();
+        IntList secondPart = new IntList();
+        marks[first] = firstMark;
+        marks[second] = secondMark;
+        firstPart.add(first);
+        secondPart.add(second);
+        int firstNext = 0;
+        int secondNext = 0;
+        IntList smaller;
+        int smallerMark;
+        while (true) {
+            if (firstNext == firstPart.size()) {
+                smaller = firstPart;
+                smallerMark = firstMark;
+                break;
+            }
+            expand(firstPart.get(firstNext++), firstMark, firstPart);
+            if (secondNext == secondPart.size()) {
+                smaller = secondPart;
+                smallerMark = secondMark;
+                break;
+            }
+            expand(secondPart.get(secondNext++), secondMark, secondPart);
+        }
+
+        int best = -1;
+        for (int i = 0; i < smaller.size(); i++) {
+            int point = smaller.get(i);
+            for (int j = 0; j < incidentCounts[point]; j++) {
+                int slot = incidentRoads[point][j];
+                if (marks[otherEnd(slot, point)] != smallerMark && (best == -1 || key(slot) < key(best))) {
+                    best = slot;
+                }
+            }
+        }
+        if (best != -1) {
+            joinTree(best);
+        }
+    }
+
+    /**
+     * Adds the unmarked tree neighbours of a point to a part being searched.
+     *
+     * @param point The ID of the point to expand.
+     * @param partMark The mark of the part.
+     * @param part The points of the part found so far.
+     */
+    private void expand(int point, int partMark, IntList part) {
+        for (int j = 0; j < treeCounts[point]; j++) {
+            int next = otherEnd(treeRoads[point][j], point);
+            if (marks[next] != partMark) {
+                marks[next] = partMark;
+                part.add(next);
+            }
+        }
+    }
+
+    /**
+     * Collects the points of the tree containing the specified point.
+     *
+     * @param start The ID of the point.
+     * @param treeMark The mark given to the collected points.
+     * @return The points of the tree.
+     */
+    private IntList collectTree(int start, int treeMark) {
+        IntList points = new IntList();
+        marks[start] = treeMark;
+        points.add(start);
+        for (int i = 0; i < points.size(); i++) {
+            expand(points.get(i), treeMark, points);
+        }
+        return points;
+    }
+
+    /**
+     * Gets the ID of the point with the specified name, registering it if it is new.
+     *
+     * @param name The name of the point.
+     * @return The ID of the point.
+     */
+    private int internPoint(String name) {
+        int known = pointNames.size();
+        int id = pointNames.intern(name);
+        if (id == known) {
+            addPointSpace(id);
+        }
+        return id;
+    }
+
+    /**
+     * Makes room for the roads of a new point.
+     *
+     * @param id The ID of the new point.
+     */
+    private void addPointSpace(int id) {
+        if (id == marks.length) {
+            int capacity = id * 2;
+            incidentRoads = Arrays.copyOf(incidentRoads, capacity);
+            incidentCounts = Arrays.copyOf(incidentCounts, capacity);
+            treeRoads = Arrays.copyOf(treeRoads, capacity);
+            treeCounts = Arrays.copyOf(treeCounts, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+            parentRoads = Arrays.copyOf(parentRoads, capacity);
+        }
+        incidentRoads[id] = new int[2];
+        treeRoads[id] = new int[2];
+    }
+
+    /**
+     * Stores a road in a free slot and links it to the road lists of its ends.
+     *
+     * @param start The ID of the start point.
+     * @param end The ID of the end point.
+     * @param distance The distance of the road.
+     * @param roadId The ID of the road.
+     * @return The slot of the road.
+     */
+    private int insertRoad(int start, int end, int distance, int roadId) {
+        int slot;
+        if (freeSlots.size() > 0) {
+            slot = freeSlots.removeLast();
+        } else {
+            slot = slotCount++;
+            if (slot == roadIds.length) {
+                int capacity = slot * 2;
+                roadStarts = Arrays.copyOf(roadStarts, capacity);
+                roadEnds = Arrays.copyOf(roadEnds, capacity);
+                roadDistances = Arrays.copyOf(roadDistances, capacity);
+                roadIds = Arrays.copyOf(roadIds, capacity);
+                inTree = Arrays.copyOf(inTree, capacity);
+                incidentPositions = Arrays.copyOf(incidentPositions, capacity * 2);
+                treePositions = Arrays.copyOf(treePositions, capacity * 2);
+            }
+        }
+        roadStarts[slot] = start;
+        roadEnds[slot] = end;
+        roadDistances[slot] = distance;
+        roadIds[slot] = roadId;
+        inTree[slot] = false;
+        slotIndex.put(roadId, slot);
+        link(incidentRoads, incidentCounts, incidentPositions, slot);
+        return slot;
+    }
+
+    /**
+     * Makes a road part of the forest.
+     *
+     * @param slot The slot of the road.
+     */
+    private void joinTree(int slot) {
+        inTree[slot] = true;
+        link(treeRoads, treeCounts, treePositions, slot);
+    }
+
+    /**
+     * Takes a road out of the forest.
+     *
+     * @param slot The slot of the road.
+     */
+    private void leaveTree(int slot) {
+        inTree[slot] = false;
+        unlink(treeRoads, treeCounts, treePositions, slot);
+    }
+
+    /**
+     * Appends a road to the lists of both of its ends, remembering where it was put.
+     *
+     * @param lists The road lists of every point.
+     * @param counts The length of the road list of every point.
+     * @param positions The position of every road in the lists of its start and end.
+     * @param slot The slot of the road.
+     */
+    private void link(int[][] lists, int[] counts, int[] positions, int slot) {
+        positions[2 * slot + START] = append(lists, counts, roadStarts[slot], slot);
+        positions[2 * slot + END] = roadStarts[slot] == roadEnds[slot] ? -1 : append(lists, counts, roadEnds[slot], slot);
+    }
+
+    /**
+     * Appends a road to the list of one point.
+     *
+     * @param lists The road lists of every point.
+     * @param counts The length of the road list of every point.
+     * @param point The ID of the point.
+     * @param slot The slot of the road.
+     * @return The position of the road in the list.
+     */
+    private static int append(int[][] lists, int[] counts, int point, int slot) {
+        if (counts[point] == lists[point].length) {
+            lists[point] = Arrays.copyOf(lists[point], counts[point] * 2);
+        }
+        lists[point][counts[point]] = slot;
+        return counts[point]++;
+    }
+
+    /**
+     * Removes a road from the lists of both of its ends by moving the last road of each list into its place.
+     *
+     * @param lists The road lists of every point.
+     * @param counts The length of the road list of every point.
+     * @param positions The position of every road in the lists of its start and end.
+     * @param slot The slot of the road.
+     */
+    private void unlink(int[][] lists, int[] counts, int[] positions, int slot) {
+        for (int side = START; side <= END; side++) {
+            int position = positions[2 * slot + side];
+            if (position == -1) {
+                continue;
+            }
+            int point = side == START ? roadStarts[slot] : roadEnds[slot];
+            int moved = lists[point][--counts[point]];
+            lists[point][position] = moved;
+            positions[2 * moved + (roadStarts[moved] == point ? START : END)] = position;
+        }
+    }
+
+    /**
+     * Gets the end of a road opposite to the specified end.
+     *
+     * @param slot The slot of the road.
+     * @param point The ID of one end of the road.
+     * @return The ID of the other end.
+     */
+    private int otherEnd(int slot, int point) {
+        return roadStarts[slot] == point ? roadEnds[slot] : roadStarts[slot];
+    }
+
+    /**
+     * Packs the distance and the ID of a road into one key ordered like the roads.
+     *
+     * @param slot The slot of the road.
+     * @return The key of the road.
+     */
+    private long key(int slot) {
+        return ((long) roadDistances[slot] << 32) | ((roadIds[slot] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets a mark that no point carries yet.
+     *
+     * @return The new mark.
+     */
+    private int nextMark() {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            mark = 0;
+        }
+        return ++mark;
+    }
+}
@@ -1,34 +1,319 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 /**
  * The Graph class represents a graph structure with points (nodes) and roads (edges).
  * It supports adding roads, finding the shortest route using Dijkstra's algorithm, and
  * building a barely connected map using a minimum spanning tree approach.
+ * Points are kept as int IDs and roads as primitive arrays; the searches run on a
+ * compressed-sparse-row view that is built on demand after roads have been added.
+ * Point names are stored once as UTF-8 in a dictionary and only decoded when a road is read.
+ * The road arrays, the compressed view, the sorted roads of the spanning tree algorithms and the
+ * point names are kept in the GraphStore of the graph, on the heap unless another store is given.
  */
 class Graph {
-    private Map<String, Point> points = new HashMap<>();
-    private Map<String, List<Road>> adjacencyList = new HashMap<>();
-    public List<Road> originalRoadsShortestRoute = new ArrayList<>();
-    private List<Road> mstOriginalRoads = new ArrayList<>();
+    private static final int DEFAULT_LANDMARK_COUNT = 8;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final int REMOVED = -1;
+    static final int MAX_ROAD_COUNT = Integer.MAX_VALUE / 2;
+
+    private final GraphStore store;
+    private NameDictionary pointNames;
+    private IntArray roadStarts;
+    private IntArray roadEnds;
+    private IntArray roadDistances;
+    private IntArray roadIds;
+    private int roadCount;
+    private int removedRoadCount;
+    private int nonPositiveRoadCount;
+    private RoadIndex roadIndex = new RoadIndex();
+    private GraphStatistics statistics = new GraphStatistics();
+    private CsrGraph csr;
+    private SpanningForest spanningForest;
+    private LandmarkTable landmarks;
+    private ContractionHierarchy hierarchy;
+    private boolean hierarchyPrepared;
+    private MultiLevelOverlay overlay;
+    private final ThreadLocal<ShortestPathSearch> searches = new ThreadLocal<>();
+    private final ThreadLocal<ShortestPathSearch> reverseSearches = new ThreadLocal<>();
+    private final ThreadLocal<HierarchySearch> hierarchySearches = new ThreadLocal<>();
+    private final ThreadLocal<DeltaStepping> deltaSteppings = new ThreadLocal<>();
+    private final ThreadLocal<KShortestRoutes> kShortestRoutes = new ThreadLocal<>();
+    private final ThreadLocal<OverlaySearch> overlaySearches = new ThreadLocal<>();
+    private volatile long version = VERSIONS.incrementAndGet();
+    private volatile Metrics metrics;
+
+    /**
+     * Constructs an empty graph that keeps its arrays on the heap.
+     */
+    public Graph() {
+        this(GraphStore.HEAP);
+    }
+
+    /**
+     * Constructs an empty graph that keeps its arrays in the specified store.
+     *
+     * @param store The store of the road arrays, the compressed view, the sorted roads and the point names.
+     */
+    Graph(GraphStore store) {
+        this.store = store;
+        this.pointNames = new NameDictionary(store);
+        this.roadStarts = store.allocate(16);
+        this.roadEnds = store.allocate(16);
+        this.roadDistances = store.allocate(16);
+        this.roadIds = store.allocate(16);
+    }
 
     /**
-     * Adds a road to the graph. This includes adding the road to the points and adjacency list.
+     * Adds a road to the graph. Both of its points are registered if they are new,
+     * and the compressed view of the graph is rebuilt on the next query.
+     * A road whose ID is already in the graph is not added.
      *
      * @param road The road to be added.
+     * @return True if the road was added, false if a road with the same ID already exists.
+     */
+    public boolean addRoad(Road road) {
+        if (containsRoad(road.getRoadId())) {
+            return false;
+        }
+        return addRoad(internPoint(road.getStartPoint()), internPoint(road.getEndPoint()), road.getDistance(), road.getRoadId());
+    }
+
+    /**
+     * Adds a road between two registered points to the graph. The compressed view of the graph
+     * is rebuilt on the next query. A road whose ID is already in the graph is not added.
+     *
+     * @param startPoint The ID of the start point, as returned by internPoint.
+     * @param endPoint The ID of the end point, as returned by internPoint.
+     * @param distance The distance of the road.
+     * @param roadId The unique identifier of the road.
+     * @return True if the road was added, false if a road with the same ID already exists.
+     * @throws IllegalStateException If the graph already holds MAX_ROAD_COUNT roads, whose arcs fill the int arc indexes.
+     */
+    public boolean addRoad(int startPoint, int endPoint, int distance, int roadId) {
+        if (roadCount == MAX_ROAD_COUNT) {
+            compactRoads();
+            if (roadCount == MAX_ROAD_COUNT) {
+                throw new IllegalStateException("A graph holds at most " + MAX_ROAD_COUNT + " roads.");
+            }
+        }
+        if (!roadIndex.put(roadId, roadCount)) {
+            return false;
+        }
+        if (roadCount == roadIds.length()) {
+            int capacity = (int) Math.min(MAX_ROAD_COUNT, Math.max(16, 2L * roadCount));
+            roadStarts = roadStarts.grow(capacity);
+            roadEnds = roadEnds.grow(capacity);
+            roadDistances = roadDistances.grow(capacity);
+            roadIds = roadIds.grow(capacity);
+        }
+        roadStarts.set(roadCount, startPoint);
+        roadEnds.set(roadCount, endPoint);
+        roadDistances.set(roadCount, distance);
+        if (distance <= 0) {
+            nonPositiveRoadCount++;
+        }
+        roadIds.set(roadCount, roadId);
+        roadCount++;
+        statistics.addRoad(startPoint, endPoint, distance, roadId);
+        roadsChanged();
+        return true;
+    }
+
+    /**
+     * Removes the road with the specified ID from the graph. Its points stay in the graph, and
+     * the remaining roads keep their order. The road is only marked as removed, which takes
+     * constant time; marked roads are dropped from the arrays when the compressed view is built
+     * next, or as soon as they make up half of the arrays.
+     *
+     * @param roadId The ID of the road.
+     * @return True if the road was removed, false if there is no road with that ID.
+     */
+    public boolean removeRoad(int roadId) {
+        int position = roadIndex.get(roadId);
+        if (position == -1) {
+            return false;
+        }
+        roadIndex.remove(roadId);
+        statistics.removeRoad(roadStarts.get(position), roadEnds.get(position), roadDistances.get(position), roadId);
+        if (roadDistances.get(position) <= 0) {
+            nonPositiveRoadCount--;
+        }
+        roadStarts.set(position, REMOVED);
+        removedRoadCount++;
+        if (removedRoadCount * 2 > roadCount) {
+            compactRoads();
+        }
+        roadsChanged();
+        return true;
+    }
+
+    /**
+     * Changes the distance of the road with the specified ID.
+     *
+     * @param roadId The ID of the road.
+     * @param distance The new distance of the road.
+     * @return True if the road was changed, false if there is no road with that ID.
+     */
+    public boolean setRoadDistance(int roadId, int distance) {
+        int position = roadIndex.get(roadId);
+        if (position == -1) {
+            return false;
+        }
+        statistics.changeDistance(roadStarts.get(position), roadEnds.get(position), roadId, roadDistances.get(position), distance);
+        if (roadDistances.get(position) <= 0) {
+            nonPositiveRoadCount--;
+        }
+        if (distance <= 0) {
+            nonPositiveRoadCount++;
+        }
+        roadDistances.set(position, distance);
+        roadsChanged();
+        return true;
+    }
+
+    /**
+     * Drops the roads marked as removed from the road arrays, keeping the order of the others, and
+     * indexes the remaining roads at their new positions.
+     */
+    private void compactRoads() {
+        if (removedRoadCount == 0) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < roadCount; i++) {
+            if (roadStarts.get(i) != REMOVED) {
+                roadStarts.set(kept, roadStarts.get(i));
+                roadEnds.set(kept, roadEnds.get(i));
+                roadDistances.set(kept, roadDistances.get(i));
+                roadIds.set(kept, roadIds.get(i));
+                kept++;
+            }
+        }
+        roadCount = kept;
+        removedRoadCount = 0;
+        roadIndex = new RoadIndex();
+        for (int i = 0; i < roadCount; i++) {
+            roadIndex.put(roadIds.get(i), i);
+        }
+    }
+
+    /**
+     * Builds the figures of the statistics again that removed roads left stale.
+     */
+    private synchronized void refreshStatistics() {
+        if (statistics.hasStaleComponents() || statistics.hasStaleMaterial()) {
+            compactRoads();
+        }
+        if (statistics.hasStaleComponents()) {
+            statistics.rebuildComponents(roadCount, roadStarts, roadEnds);
+        }
+        if (statistics.hasStaleMaterial()) {
+            statistics.recountMaterial(roadCount, roadStarts, roadEnds, roadDistances, roadIds);
+        }
+    }
+
+    /**
+     * Drops everything computed from the roads, so that it is computed again on the next query.
+     */
+    private void roadsChanged() {
+        version = VERSIONS.incrementAndGet();
+        csr = null;
+        spanningForest = null;
+        landmarks = null;
+        hierarchy = null;
+    }
+
+    /**
+     * Gets the version of the graph. Versions are unique across all graphs and change whenever
+     * roads are added, removed or re-measured, so results computed for one version stay valid
+     * as long as the graph has that version.
+     *
+     * @return The version of the graph.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether a road with the specified ID is in the graph.
+     *
+     * @param roadId The ID of the road.
+     * @return True if the graph contains a road with that ID, false otherwise.
+     */
+    public boolean containsRoad(int roadId) {
+        return roadIndex.get(roadId) != -1;
+    }
+
+    /**
+     * Gets the ID of the point with the specified name, registering it if it is new.
+     *
+     * @param name The name of the point.
+     * @return The ID of the point.
      */
-    public void addRoad(Road road) {
-        originalRoadsShortestRoute.add(road);
-        String startPoint = road.getStartPoint();
-        String endPoint = road.getEndPoint();
-        points.putIfAbsent(startPoint, new Point(startPoint));
-        points.putIfAbsent(endPoint, new Point(endPoint));
+    public int internPoint(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return internPoint(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
 
-        points.get(startPoint).addRoad(road);
-        Road reverseRoad = new Road(endPoint, startPoint, road.getDistance(), road.getRoadId());
-        points.get(endPoint).addRoad(reverseRoad);
+    /**
+     * Gets the ID of the point whose UTF-8 name is stored in the specified bytes, registering it if it is new.
+     *
+     * @param buffer The buffer holding the name.
+     * @param from The index of the first byte of the name.
+     * @param to The index just past the last byte of the name.
+     * @return The ID of the point.
+     */
+    int internPoint(ByteBuffer buffer, int from, int to) {
+        int known = pointNames.size();
+        int id = pointNames.intern(buffer, from, to);
+        if (id == known) {
+            statistics.addPoint();
+        }
+        return id;
+    }
 
-        adjacencyList.computeIfAbsent(startPoint, k -> new ArrayList<>()).add(road);
-        adjacencyList.computeIfAbsent(endPoint, k -> new ArrayList<>()).add(reverseRoad);
+    /**
+     * Gets the number of points in the graph.
+     *
+     * @return The number of points.
+     */
+    int getPointCount() {
+        return pointNames.size();
+    }
+
+    /**
+     * Gets the compressed-sparse-row view of the graph, building it if roads were added since the last build.
+     *
+     * @return The compressed view of the graph.
+     */
+    private synchronized CsrGraph csr() {
+        if (csr == null) {
+            compactRoads();
+            refreshStatistics();
+            csr = new CsrGraph(store, pointNames.size(), roadCount, roadStarts, roadEnds, roadDistances, roadIds);
+            roadIndex.compact();
+        }
+        return csr;
+    }
+
+    /**
+     * Gets the roads of the graph sorted for the spanning tree algorithms, sorting them if roads were added since.
+     *
+     * @return The sorted roads of the graph.
+     */
+    private synchronized SpanningForest spanningForest() {
+        if (spanningForest == null) {
+            csr();
+            spanningForest = new SpanningForest(store, pointNames.size(), roadCount, roadStarts, roadEnds, roadDistances, roadIds, roadIndex);
+        }
+        return spanningForest;
     }
 
     /**
@@ -39,132 +324,676 @@ class Graph {
      * @return A list of original roads that form the MST.
      */
     public List<Road> buildBarelyConnectedMap(String startingPoint) {
-        List<Road> result = new ArrayList<>();
-        PriorityQueue<Road> edgeQueue = new PriorityQueue<>(
-                Comparator.comparingInt(Road::getDistance).thenComparingInt(Road::getRoadId));
-        Set<String> inTree = new HashSet<>();
-
-        expandTree(startingPoint, edgeQueue, inTree);
-
-        while (!edgeQueue.isEmpty() && result.size() < points.size() - 1) {
-            Road edge = edgeQueue.poll();
-            if (!inTree.contains(edge.getEndPoint())) {
-                result.add(edge);
-                inTree.add(edge.getEndPoint());
-                expandTree(edge.getEndPoint(), edgeQueue, inTree);
-                Road originalRoad = getOriginalRoadById(edge.getRoadId());
+        return buildBarelyConnectedMap(startingPoint, MstAlgorithm.PRIM);
+    }
+
+    /**
+     * Builds a barely connected map (minimum spanning tree) starting from the specified point with
+     * the specified algorithm. The resulting roads are sorted by distance and road ID.
+     *
+     * @param startingPoint The point to start building the MST from.
+     * @param algorithm The algorithm used to build the tree.
+     * @return A list of original roads that form the MST.
+     */
+    public List<Road> buildBarelyConnectedMap(String startingPoint, MstAlgorithm algorithm) {
+        List<Road> mstOriginalRoads = new ArrayList<>();
+        int start = pointNames.find(startingPoint);
+        if (start == -1) {
+            return mstOriginalRoads;
+        }
+        if (algorithm != MstAlgorithm.PRIM) {
+            SpanningForest forest = spanningForest();
+            int[] treeRanks = algorithm == MstAlgorithm.KRUSKAL ? forest.kruskal(start) : forest.boruvka(start);
+            for (int rank : treeRanks) {
+                mstOriginalRoads.add(getOriginalRoadById(forest.getRoadId(rank)));
+            }
+            return mstOriginalRoads;
+        }
+        CsrGraph graph = csr();
+        PriorityQueue<Integer> arcQueue = new PriorityQueue<>(
+                Comparator.comparingInt(graph::weight).thenComparingInt(graph::roadId));
+        boolean[] inTree = new boolean[graph.getPointCount()];
+        int treeSize = 0;
+        long pushes = 0;
+        long pops = 0;
+        int peakQueueSize = 0;
+
+        pushes += expandTree(graph, start, arcQueue, inTree);
+
+        while (!arcQueue.isEmpty() && treeSize < graph.getPointCount() - 1) {
+            peakQueueSize = Math.max(peakQueueSize, arcQueue.size());
+            int arc = arcQueue.poll();
+            pops++;
+            int endPoint = graph.target(arc);
+            if (!inTree[endPoint]) {
+                treeSize++;
+                pushes += expandTree(graph, endPoint, arcQueue, inTree);
+                Road originalRoad = getOriginalRoadById(graph.roadId(arc));
                 if (originalRoad != null) {
                     mstOriginalRoads.add(originalRoad);
                 }
             }
         }
 
+        Metrics current = metrics;
+        if (current != null) {
+            long relaxed = 0;
+            for (int point = 0; point < graph.getPointCount(); point++) {
+                if (inTree[point]) {
+                    relaxed += graph.endArc(point) - graph.firstArc(point);
+                }
+            }
+            current.getSpanningTrees().add(treeSize + 1, relaxed, pushes, pops, pops - treeSize, peakQueueSize);
+        }
+
         mstOriginalRoads.sort(Comparator.comparingInt(Road::getDistance).thenComparingInt(Road::getRoadId));
 
         return mstOriginalRoads;
     }
 
     /**
-     * Expands the tree by adding edges from the specified point to the priority queue.
+     * Builds the minimum spanning forest of the whole graph as a structure that can be updated
+     * road by road afterwards.
      *
+     * @return The updatable minimum spanning forest.
+     */
+    public synchronized DynamicSpanningForest buildDynamicBarelyConnectedMap() {
+        SpanningForest forest = spanningForest();
+        boolean[] inForest = new boolean[roadCount];
+        for (int rank : forest.kruskal()) {
+            inForest[roadIndex.get(forest.getRoadId(rank))] = true;
+        }
+        return new DynamicSpanningForest(pointNames.copy(), roadCount, roadStarts, roadEnds, roadDistances, roadIds, inForest);
+    }
+
+    /**
+     * Expands the tree by adding arcs from the specified point to the priority queue.
+     *
+     * @param graph The compressed view of the graph.
      * @param point The point to expand from.
-     * @param edgeQueue The priority queue of edges.
-     * @param inTree The set of points that are already in the tree.
-     */
-    private void expandTree(String point, PriorityQueue<Road> edgeQueue, Set<String> inTree) {
-        inTree.add(point);
-        if (adjacencyList.containsKey(point)) {
-            for (Road road : adjacencyList.get(point)) {
-                if (!inTree.contains(road.getEndPoint())) {
-                    edgeQueue.add(road);
-                }
+     * @param arcQueue The priority queue of arcs.
+     * @param inTree The points that are already in the tree.
+     * @return The number of arcs added to the queue.
+     */
+    private int expandTree(CsrGraph graph, int point, PriorityQueue<Integer> arcQueue, boolean[] inTree) {
+        inTree[point] = true;
+        int added = 0;
+        for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+            if (!inTree[graph.target(arc)]) {
+                arcQueue.add(arc);
+                added++;
             }
         }
+        return added;
     }
 
     /**
      * Finds the shortest route from the start point to the end point using Dijkstra's algorithm.
+     * This method may be called from several threads at once; each thread reuses its own search state.
      *
      * @param start The starting point.
      * @param end The ending point.
      * @return A list of roads representing the shortest route.
      */
     public List<Road> findShortestRoute(String start, String end) {
-        PriorityQueue<Road> priorityQueue = new PriorityQueue<>(
-                Comparator.comparingInt(Road::getDistance).thenComparingInt(Road::getRoadId));
-        Map<String, Road> shortestPaths = new HashMap<>();
-        Set<String> visitedPoints = new HashSet<>();
+        return findShortestRoute(start, end, RouteAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Finds the shortest route from the start point to the end point using the specified algorithm.
+     * Among routes of equal length, every algorithm returns the one Dijkstra's algorithm returns.
+     * Points in different connected components are told apart before any search starts.
+     *
+     * @param start The starting point.
+     * @param end The ending point.
+     * @param algorithm The algorithm used for the search.
+     * @return A list of roads representing the shortest route.
+     */
+    public List<Road> findShortestRoute(String start, String end, RouteAlgorithm algorithm) {
+        int source = pointNames.find(start);
+        int target = pointNames.find(end);
+        if (source == -1 || target == -1 || !statistics.isConnected(source, target)) {
+            return new LinkedList<>();
+        }
+        ShortestPathSearch search = shortestPathSearch(searches);
+        ShortestPathSearch reverseSearch = null;
+        HierarchySearch hierarchySearch = null;
+        OverlaySearch overlaySearch = null;
+        DeltaStepping deltaStepping = null;
+        ContractionHierarchy contractionHierarchy = null;
+        if (algorithm == RouteAlgorithm.CONTRACTION_HIERARCHY && nonPositiveRoadCount == 0) {
+            contractionHierarchy = contractionHierarchy();
+        }
+        if (contractionHierarchy != null) {
+            hierarchySearch = hierarchySearch(contractionHierarchy);
+            searchInHierarchy(search, hierarchySearch, source, target);
+        } else if (algorithm == RouteAlgorithm.OVERLAY && nonPositiveRoadCount == 0) {
+            overlaySearch = overlaySearch();
+            searchOnOverlay(search, overlaySearch, source, target);
+        } else if (algorithm == RouteAlgorithm.DELTA_STEPPING && nonPositiveRoadCount == 0) {
+            deltaStepping = deltaStepping();
+            searchWithDeltaStepping(search, deltaStepping, source, target);
+        } else if (algorithm == RouteAlgorithm.BIDIRECTIONAL || algorithm == RouteAlgorithm.OVERLAY
+                || (algorithm == RouteAlgorithm.CONTRACTION_HIERARCHY && nonPositiveRoadCount > 0)) {
+            reverseSearch = shortestPathSearch(reverseSearches);
+            searchBidirectional(search, reverseSearch, source, target);
+        } else if (algorithm == RouteAlgorithm.ALT) {
+            searchWithLandmarks(search, landmarks(), source, target);
+        } else {
+            search.search(source, target);
+        }
+        Metrics current = metrics;
+        if (current != null) {
+            search.drainCounts(current.getRouteSearches());
+            if (reverseSearch != null) {
+                reverseSearch.drainCounts(current.getRouteSearches());
+            }
+            if (hierarchySearch != null) {
+                hierarchySearch.drainCounts(current.getRouteSearches());
+            }
+            if (overlaySearch != null) {
+                overlaySearch.drainCounts(current.getRouteSearches());
+            }
+            if (deltaStepping != null) {
+                deltaStepping.drainCounts(current.getRouteSearches());
+            }
+        }
+        return renawPath(search, source, target);
+    }
+
+    /**
+     * Finds up to the specified number of shortest routes from the start point to the end point that
+     * visit no point twice, shortest first. The first route is the one findShortestRoute returns.
+     * This method may be called from several threads at once; each thread reuses its own search state.
+     *
+     * @param start The starting point.
+     * @param end The ending point.
+     * @param count The largest number of routes to find.
+     * @return The routes found, each a list of roads like the one findShortestRoute returns.
+     */
+    public List<List<Road>> findShortestRoutes(String start, String end, int count) {
+        List<List<Road>> routes = new ArrayList<>();
+        int source = pointNames.find(start);
+        int target = pointNames.find(end);
+        if (source == -1 || target == -1 || !statistics.isConnected(source, target)) {
+            return routes;
+        }
+        CsrGraph graph = csr();
+        KShortestRoutes search = kShortestRoutes.get();
+        if (search == null || search.getGraph() != graph) {
+            search = new KShortestRoutes(graph);
+            kShortestRoutes.set(search);
+        }
+        for (IntList route : search.findRoutes(shortestPathSearch(searches), shortestPathSearch(reverseSearches), source, target, count)) {
+            routes.add(toPath(route));
+        }
+        return routes;
+    }
 
-        priorityQueue.add(new Road(start, start, 0, -1));
+    /**
+     * Searches from both ends of the route at once until the two searches meet, which gives the
+     * length of the shortest route. The forward search then continues, skipping every point that
+     * cannot be on a route of that length, until it settles the end point. Up to the meeting the
+     * forward search is an ordinary Dijkstra search, and the skipped points cannot be on any shortest
+     * route, so the end point is reached through the same roads as in a full search.
+     *
+     * @param forward The search from the starting point, which holds the result.
+     * @param backward The search from the ending point.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    private void searchBidirectional(ShortestPathSearch forward, ShortestPathSearch backward, int source, int target) {
+        forward.start(source);
+        backward.start(target);
+        forward.meet(backward);
+        backward.meet(forward);
+
+        while (!forward.isSettled(target)) {
+            long forwardTop = forward.peekDistance();
+            long backwardTop = backward.peekDistance();
+            long meetingDistance = Math.min(forward.getMeetingDistance(), backward.getMeetingDistance());
+            if (forwardTop == Long.MAX_VALUE && backwardTop == Long.MAX_VALUE || forwardTop >= meetingDistance - backwardTop) {
+                break;
+            }
+            if (forwardTop <= backwardTop) {
+                forward.settleNext();
+            } else {
+                backward.settleNext();
+            }
+        }
 
-        while (!priorityQueue.isEmpty()) {
-            Road currentRoad = priorityQueue.poll();
-            String currentPoint = currentRoad.getEndPoint();
+        long routeLength = Math.min(forward.getMeetingDistance(), backward.getMeetingDistance());
+        if (forward.isSettled(target) || routeLength == Long.MAX_VALUE) {
+            return;
+        }
+        long backwardRadius = backward.peekDistance();
+        forward.meet(null);
+        forward.restrict(point -> backward.isSettled(point) ? backward.getDistance(point) : backwardRadius, routeLength);
+        forward.settleUntil(target);
+    }
 
-            if (!visitedPoints.add(currentPoint)) {
-                continue;
+    /**
+     * Finds the length of the route with an A* search guided by the landmarks, then runs Dijkstra's
+     * algorithm restricted to the points whose distance plus landmark bound fits in that length.
+     * Points outside the restriction cannot be on any shortest route, so the end point is reached
+     * through the same roads as in a full search.
+     *
+     * @param search The search that holds the result.
+     * @param table The landmark distances of the graph.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    private void searchWithLandmarks(ShortestPathSearch search, LandmarkTable table, int source, int target) {
+        LowerBound bound = point -> table.lowerBound(point, target);
+        long routeLength = search.searchDistance(source, target, bound);
+        search.start(source);
+        if (routeLength != Long.MAX_VALUE) {
+            search.restrict(bound, routeLength);
+            search.settleUntil(target);
+        }
+    }
+
+    /**
+     * Measures the length of the route on the contraction hierarchy, then runs Dijkstra's algorithm
+     * restricted to the points whose distance plus their exact distance to the end point fits in
+     * that length. Only points on shortest routes are settled, and the end point is reached through
+     * the same roads as in a full search.
+     *
+     * @param search The search that holds the result.
+     * @param hierarchySearch The search measuring distances to the end point on the hierarchy.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    private void searchInHierarchy(ShortestPathSearch search, HierarchySearch hierarchySearch, int source, int target) {
+        hierarchySearch.aim(target);
+        long routeLength = hierarchySearch.toTarget(source);
+        search.start(source);
+        if (routeLength != Long.MAX_VALUE) {
+            search.restrict(hierarchySearch, routeLength);
+            search.settleUntil(target);
+        }
+    }
+
+    /**
+     * Measures the length of the route on the multi-level overlay, then runs Dijkstra's algorithm
+     * restricted to the points whose distance plus their distance to the end point measured on the
+     * overlay fits in that length. As in searchBidirectional, the skipped points cannot be on any
+     * shortest route, so the end point is reached through the same roads as in a full search.
+     *
+     * @param search The search that holds the result.
+     * @param overlaySearch The search measuring distances to the end point on the overlay.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    private void searchOnOverlay(ShortestPathSearch search, OverlaySearch overlaySearch, int source, int target) {
+        long routeLength = overlaySearch.aim(source, target);
+        search.start(source);
+        if (routeLength != Long.MAX_VALUE) {
+            search.restrict(overlaySearch, routeLength);
+            search.settleUntil(target);
+        }
+    }
+
+    /**
+     * Measures the distances to the end point with delta-stepping until the start point is done,
+     * then runs Dijkstra's algorithm restricted to the points whose distance plus their distance to
+     * the end point fits in the length of the route, like searchInHierarchy.
+     *
+     * @param search The search that holds the result.
+     * @param deltaStepping The search measuring distances to the end point.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    private void searchWithDeltaStepping(ShortestPathSearch search, DeltaStepping deltaStepping, int source, int target) {
+        long routeLength = deltaStepping.aim(source, target);
+        search.start(source);
+        if (routeLength != Long.MAX_VALUE) {
+            search.restrict(deltaStepping, routeLength);
+            search.settleUntil(target);
+        }
+    }
+
+    /**
+     * Gets the landmark distances of the graph, choosing the default number of landmarks if none
+     * were prepared or loaded since the last road was added.
+     *
+     * @return The landmark table of the graph.
+     */
+    private synchronized LandmarkTable landmarks() {
+        if (landmarks == null) {
+            prepareLandmarks(DEFAULT_LANDMARK_COUNT);
+        }
+        return landmarks;
+    }
+
+    /**
+     * Chooses the specified number of landmarks and computes their distances to every point,
+     * for use by the ALT route algorithm.
+     *
+     * @param count The number of landmarks.
+     */
+    public synchronized void prepareLandmarks(int count) {
+        ShortestPathSearch search = new ShortestPathSearch(csr());
+        landmarks = search.getGraph().getPointCount() == 0 ? null : LandmarkTable.compute(search, getFingerprint(), count);
+    }
+
+    /**
+     * Writes the prepared landmark distances to a file, so that later runs can load them.
+     *
+     * @param path The path of the landmark file.
+     * @return True if the file was written, false otherwise.
+     */
+    public synchronized boolean saveLandmarks(String path) {
+        return landmarks != null && landmarks.save(path);
+    }
+
+    /**
+     * Loads landmark distances from a file, if the file was written for a graph with exactly these roads.
+     *
+     * @param path The path of the landmark file.
+     * @return True if the landmarks were loaded, false if there is no such file or it belongs to another map.
+     */
+    public synchronized boolean loadLandmarks(String path) {
+        LandmarkTable table = LandmarkTable.load(path, getFingerprint(), pointNames.size());
+        if (table != null) {
+            landmarks = table;
+        }
+        return table != null;
+    }
+
+    /**
+     * Computes a checksum of the points and roads of the graph, used to recognise files computed for it.
+     *
+     * @return The fingerprint of the graph.
+     */
+    private long getFingerprint() {
+        compactRoads();
+        CRC32 crc = new CRC32();
+        for (int point = 0; point < pointNames.size(); point++) {
+            crc.update(pointNames.getBytes(point));
+            crc.update('\n');
+        }
+        ByteBuffer road = ByteBuffer.allocate(16);
+        for (int i = 0; i < roadCount; i++) {
+            road.clear();
+            road.putInt(roadStarts.get(i)).putInt(roadEnds.get(i)).putInt(roadDistances.get(i)).putInt(roadIds.get(i));
+            crc.update(road.array());
+        }
+        return ((long) roadCount << 32) | crc.getValue();
+    }
+
+    /**
+     * Writes the points, roads, compressed view and road index of the graph to a snapshot,
+     * followed by its contraction hierarchy if one has been prepared.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+        CsrGraph graph = csr();
+        pointNames.writeTo(out);
+        GraphSnapshot.writeInts(out, roadStarts, roadCount);
+        GraphSnapshot.writeInts(out, roadEnds, roadCount);
+        GraphSnapshot.writeInts(out, roadDistances, roadCount);
+        GraphSnapshot.writeInts(out, roadIds, roadCount);
+        roadIndex.writeTo(out);
+        graph.writeTo(out);
+        ContractionHierarchy contractionHierarchy = contractionHierarchy();
+        out.writeInt(contractionHierarchy == null ? 0 : 1);
+        if (contractionHierarchy != null) {
+            contractionHierarchy.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a graph written by writeTo. The compressed view, the road index and the contraction
+     * hierarchy are used as read, so nothing has to be rebuilt. A hierarchy read this way is used
+     * until roads change, and is only built again afterwards if it is prepared.
+     *
+     * @param in The reader of the snapshot, positioned at the graph.
+     * @param store The store the graph keeps its arrays in.
+     * @param withHierarchy Whether the snapshot has a hierarchy section after the compressed view.
+     * @return The graph read from the snapshot.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    static Graph readFrom(SnapshotReader in, GraphStore store, boolean withHierarchy) throws IOException {
+        Graph graph = new Graph(store);
+        graph.pointNames = NameDictionary.readFrom(in, store);
+        for (int point = 0; point < graph.pointNames.size(); point++) {
+            graph.statistics.addPoint();
+        }
+        graph.roadStarts = store.readInts(in);
+        graph.roadEnds = store.readInts(in);
+        graph.roadDistances = store.readInts(in);
+        graph.roadIds = store.readInts(in);
+        graph.roadCount = graph.roadIds.length();
+        for (int i = 0; i < graph.roadCount; i++) {
+            if (graph.roadDistances.get(i) <= 0) {
+                graph.nonPositiveRoadCount++;
             }
+            graph.statistics.addRoad(graph.roadStarts.get(i), graph.roadEnds.get(i), graph.roadDistances.get(i), graph.roadIds.get(i));
+        }
+        graph.roadIndex = RoadIndex.readFrom(in);
+        graph.csr = CsrGraph.readFrom(in, store);
+        if (withHierarchy && in.readInt() != 0) {
+            graph.hierarchy = ContractionHierarchy.readFrom(in);
+        }
+        return graph;
+    }
 
-            for (Road road : points.get(currentPoint).getConnectedRoads()) {
-                if (visitedPoints.contains(road.getEndPoint())) {
-                    continue;
-                }
-                int newDist = shortestPaths.getOrDefault(currentPoint, new Road("", "", 0, -1)).getDistance() + road.getDistance();
-                Road prevRoad = shortestPaths.get(road.getEndPoint());
-                if (prevRoad == null || newDist < prevRoad.getDistance() ) {
-                    shortestPaths.put(road.getEndPoint(), new Road(currentPoint, road.getEndPoint(), newDist, road.getRoadId()));
-                    priorityQueue.add(new Road(currentPoint, road.getEndPoint(), newDist, road.getRoadId()));
+    /**
+     * Gets the contraction hierarchy search state of the current thread, creating it if the
+     * hierarchy has been built again since it was made.
+     *
+     * @param contractionHierarchy The current contraction hierarchy of the graph.
+     * @return The hierarchy search of the current thread.
+     */
+    private HierarchySearch hierarchySearch(ContractionHierarchy contractionHierarchy) {
+        HierarchySearch search = hierarchySearches.get();
+        if (search == null || search.getHierarchy() != contractionHierarchy) {
+            search = new HierarchySearch(contractionHierarchy);
+            hierarchySearches.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * Gets the delta-stepping search state of the current thread, creating it if the graph has
+     * changed since it was made.
+     *
+     * @return The delta-stepping search of the current thread.
+     */
+    private DeltaStepping deltaStepping() {
+        CsrGraph graph = csr();
+        DeltaStepping search = deltaSteppings.get();
+        if (search == null || search.getGraph() != graph) {
+            search = new DeltaStepping(graph);
+            deltaSteppings.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * Gets the overlay search state of the current thread, bringing the overlay up to date first
+     * and creating the state again if the overlay was customized or built again since it was made.
+     *
+     * @return The overlay search of the current thread.
+     */
+    private OverlaySearch overlaySearch() {
+        customizeOverlay();
+        CsrGraph graph = csr();
+        OverlaySearch search = overlaySearches.get();
+        if (search == null || search.getGraph() != graph) {
+            search = new OverlaySearch(overlay);
+            overlaySearches.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * Brings the multi-level overlay used by the overlay route algorithm up to date. If only road
+     * distances changed since it was built, its boundary distances are recomputed in parallel;
+     * otherwise its cells are laid out again first.
+     */
+    public synchronized void customizeOverlay() {
+        CsrGraph graph = csr();
+        if (overlay == null || !overlay.customize(graph)) {
+            overlay = new MultiLevelOverlay(graph);
+        }
+    }
+
+    /**
+     * Turns the roads of a route into original roads, each with its distance from the starting point.
+     *
+     * @param route The roads of the route as from, to, distance and road ID quadruples, or null if there is no route.
+     * @return A list of roads representing the route.
+     */
+    private List<Road> toPath(IntList route) {
+        LinkedList<Road> path = new LinkedList<>();
+        if (route == null) {
+            return path;
+        }
+        int distance = 0;
+        for (int i = 0; i < route.size(); i += 4) {
+            distance += route.get(i + 2);
+            path.add(new Road(pointNames, route.get(i), route.get(i + 1), distance, route.get(i + 3)));
+        }
+        return path;
+    }
+
+    /**
+     * Gets the contraction hierarchy of the graph, building it again if it has been prepared and
+     * roads changed since it was built.
+     *
+     * @return The contraction hierarchy of the graph, or null if there is none.
+     */
+    private synchronized ContractionHierarchy contractionHierarchy() {
+        if (hierarchy == null && hierarchyPrepared) {
+            hierarchy = new ContractionHierarchy(csr());
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Builds the contraction hierarchy used by the contraction hierarchy route algorithm and keeps
+     * it up to date from then on, building it again on the first query after roads change. Until
+     * then that algorithm runs Dijkstra's algorithm, since building the hierarchy of a large map
+     * takes seconds and only pays off when many routes are asked on the same roads.
+     */
+    public synchronized void prepareContractionHierarchy() {
+        hierarchyPrepared = true;
+        contractionHierarchy();
+    }
+
+    /**
+     * Computes the shortest distances from every source point to every target point. Each source
+     * gets one Dijkstra search, run in parallel with the others on the search state its thread
+     * reuses, which stops once the farthest target is settled.
+     *
+     * @param sources The names of the source points.
+     * @param targets The names of the target points.
+     * @return The table of distances; points missing from the graph are unreachable from everywhere.
+     */
+    public DistanceTable computeDistanceTable(List<String> sources, List<String> targets) {
+        int[] targetIds = targets.stream().mapToInt(pointNames::find).toArray();
+        int[] distances = new int[sources.size() * targetIds.length];
+        IntStream.range(0, sources.size()).parallel().forEach(row -> {
+            int source = pointNames.find(sources.get(row));
+            ShortestPathSearch search = shortestPathSearch(searches);
+            if (source != -1) {
+                search.start(source);
+            }
+            for (int column = 0; column < targetIds.length; column++) {
+                int target = targetIds[column];
+                int distance = DistanceTable.UNREACHABLE;
+                if (source != -1 && target != -1 && statistics.isConnected(source, target)) {
+                    search.settleUntil(target);
+                    if (search.isSettled(target)) {
+                        distance = search.getDistance(target);
+                    }
                 }
+                distances[row * targetIds.length + column] = distance;
             }
-        }
+        });
+        return new DistanceTable(sources, targets, distances);
+    }
 
-        return renawPath(shortestPaths, start, end);
+    /**
+     * Gets the search state of the current thread, creating it if the graph has changed since it was made.
+     *
+     * @param threadSearches The per-thread search states to take it from.
+     * @return The shortest path search of the current thread.
+     */
+    private ShortestPathSearch shortestPathSearch(ThreadLocal<ShortestPathSearch> threadSearches) {
+        CsrGraph graph = csr();
+        ShortestPathSearch search = threadSearches.get();
+        if (search == null || search.getGraph() != graph) {
+            search = new ShortestPathSearch(graph);
+            threadSearches.set(search);
+        }
+        return search;
     }
 
     /**
      * Constructs the shortest path from the end point to the start point.
      *
-     * @param shortestPaths The map of shortest paths.
+     * @param search The search whose shortest path tree is used.
      * @param start The starting point.
      * @param end The ending point.
      * @return A list of roads representing the shortest path.
      */
-    private List<Road> renawPath(Map<String, Road> shortestPaths, String start, String end) {
+    private List<Road> renawPath(ShortestPathSearch search, int start, int end) {
         LinkedList<Road> path = new LinkedList<>();
-        Road road = shortestPaths.get(end);
-
-        while (road != null && !road.getStartPoint().equals(start)) {
-            path.addFirst(road);
-            road = shortestPaths.get(road.getStartPoint());
+        if (start == end || !search.isReached(end)) {
+            return path;
         }
 
-        if (road != null && road.getStartPoint().equals(start)) {
-            path.addFirst(road);
+        for (int point = end; point != start; point = search.getPreviousPoint(point)) {
+            int previousPoint = search.getPreviousPoint(point);
+            path.addFirst(new Road(pointNames, previousPoint, point, search.getDistance(point),
+                    search.getGraph().roadId(search.getPreviousArc(point))));
         }
 
         return path;
     }
 
     /**
-     * Calculates the total distance of all roads in the graph.
+     * Gets the total distance of all roads in the graph.
+     * Parallel roads between the same two points are counted once.
      *
      * @return The total distance of all roads.
      */
     public int getTotalRoadDistance() {
-        Set<String> visited = new HashSet<>();
-        int totalDistance = 0;
-
-        for (Point point : points.values()) {
-            for (Road road : point.getConnectedRoads()) {
-                if (!visited.contains(road.getStartPoint() + road.getEndPoint())) {
-                    totalDistance += road.getDistance();
-                    visited.add(road.getStartPoint() + road.getEndPoint());
-                    visited.add(road.getEndPoint() + road.getStartPoint());
-                }
-            }
-        }
+        refreshStatistics();
+        return (int) statistics.getTotalMaterial();
+    }
+
+    /**
+     * Attaches metrics that the effort of every Dijkstra route search and Prim tree build is added
+     * to, or detaches them.
+     *
+     * @param metrics The metrics to add to, or null to stop collecting.
+     */
+    void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
 
-        return totalDistance;
+    /**
+     * Builds the compressed view the searches run on, if roads were added since it was last built.
+     */
+    void prepareSearch() {
+        csr();
+    }
+
+    /**
+     * Gets the statistics of the graph, which are kept up to date as roads are added, removed and
+     * changed. Figures that a removal left stale are counted again first.
+     *
+     * @return The statistics of the graph.
+     */
+    GraphStatistics getStatistics() {
+        refreshStatistics();
+        return statistics;
     }
 
     /**
@@ -174,11 +1003,10 @@ class Graph {
      * @return The original road with the specified ID, or null if not found.
      */
     public Road getOriginalRoadById(int roadId) {
-        for (Road road : originalRoadsShortestRoute) {
-            if (road.getRoadId() == roadId) {
-                return road;
-            }
+        int i = roadIndex.get(roadId);
+        if (i == -1) {
+            return null;
         }
-        return null;
+        return new Road(pointNames, roadStarts.get(i), roadEnds.get(i), roadDistances.get(i), roadIds.get(i));
     }
 }
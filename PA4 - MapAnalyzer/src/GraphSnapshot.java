@@ -0,0 +1,185 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The GraphSnapshot class stores a built graph together with the start and end points of its map
+ * in a binary file, so that later runs can skip parsing the text map. The file holds the point
+ * names, the roads, the compressed adjacency arrays and the road ID index as flat int arrays;
+ * every array is memory-mapped on its own and copied out in bulk, except that a graph loaded into
+ * a store on a directory uses the point names and the compressed adjacency straight from their
+ * mappings. The contraction hierarchy of the graph follows if it was prepared, so that a server
+ * or batch run started from the snapshot does not contract the map again; snapshots of the first
+ * version, written before hierarchies were stored, are still read. A CRC32 of the whole file
+ * comes last.
+ */
+class GraphSnapshot {
+    private static final int MAGIC = 0x4D415053;
+    private static final int VERSION = 2;
+    private static final int OLDEST_VERSION = 1;
+    private static final int CHECK_WINDOW_SIZE = 1 << 30;
+
+    private final Graph graph;
+    private final String start;
+    private final String end;
+
+    /**
+     * Constructs a GraphSnapshot of a loaded map.
+     *
+     * @param graph The graph of the map.
+     * @param start The starting point of the map.
+     * @param end The ending point of the map.
+     */
+    GraphSnapshot(Graph graph, String start, String end) {
+        this.graph = graph;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets the graph of the map.
+     *
+     * @return The graph.
+     */
+    Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the starting point of the map.
+     *
+     * @return The name of the starting point.
+     */
+    String getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the ending point of the map.
+     *
+     * @return The name of the ending point.
+     */
+    String getEnd() {
+        return end;
+    }
+
+    /**
+     * Checks whether the file at the specified path starts like a snapshot.
+     *
+     * @param path The path of the file.
+     * @return True if the file starts with the snapshot magic number, false otherwise.
+     */
+    static boolean isSnapshot(String path) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a binary file.
+     *
+     * @param path The path of the file to write.
+     * @return True if the file was written, false otherwise.
+     */
+    boolean save(String path) {
+        try (FileOutputStream file = new FileOutputStream(path)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBytes(out, start.getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, end.getBytes(StandardCharsets.UTF_8));
+            graph.writeTo(out);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads a snapshot written by save. The file is checked and mapped in windows, so it may be
+     * larger than a single mapping.
+     *
+     * @param path The path of the file to read.
+     * @param store The store the graph keeps its arrays in.
+     * @return The loaded snapshot, or null if the file cannot be read, has another version or is corrupt.
+     */
+    static GraphSnapshot load(String path, GraphStore store) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            SnapshotReader in = new SnapshotReader(channel, 0);
+            if (size < 2 * Integer.BYTES + Long.BYTES || in.readInt() != MAGIC) {
+                return null;
+            }
+            int version = in.readInt();
+            if (version < OLDEST_VERSION || version > VERSION) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            for (long position = 0; position < size - Long.BYTES; position += CHECK_WINDOW_SIZE) {
+                long length = Math.min(CHECK_WINDOW_SIZE, size - Long.BYTES - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+            if (crc.getValue() != new SnapshotReader(channel, size - Long.BYTES).readLong()) {
+                return null;
+            }
+            String start = new String(in.readBytes(), StandardCharsets.UTF_8);
+            String end = new String(in.readBytes(), StandardCharsets.UTF_8);
+            return new GraphSnapshot(Graph.readFrom(in, store, version >= 2), start, end);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Writes a length-prefixed int array.
+     *
+     * @param out The stream to write to.
+     * @param values The array holding the values.
+     * @param count The number of values to write from the start of the array.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Writes the first values of an array of a graph store as a length-prefixed int array.
+     *
+     * @param out The stream to write to.
+     * @param values The array holding the values.
+     * @param count The number of values to write from the start of the array.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeInts(DataOutputStream out, IntArray values, int count) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values.get(i));
+        }
+    }
+
+    /**
+     * Writes a length-prefixed byte array.
+     *
+     * @param out The stream to write to.
+     * @param bytes The bytes to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,350 @@
+import java.util.Arrays;
+
+/**
+ * The GraphStatistics class keeps the key figures of a graph up to date as points and roads are
+ * added, removed and re-measured, each in constant time: the number of points and roads, the
+ * construction material, the degree of every point with a histogram of the degrees, and the
+ * connected components through a union-find. Material counts the distance of the first road
+ * between each pair of points only, since parallel roads between the same two points share their
+ * material.
+ * <p>
+ * Two figures cannot be taken back in constant time. A union-find cannot split a component, so a
+ * removed road that may have split one leaves the components stale, and a removed road that was
+ * counted for a pair with parallel roads leaves the material stale until the next parallel road is
+ * known. The graph rebuilds stale figures from its roads the next time they are needed, once for
+ * any number of removals.
+ */
+class GraphStatistics {
+    private static final long EMPTY = -1;
+
+    private int pointCount;
+    private int roadCount;
+    private long totalMaterial;
+    private int[] degrees = new int[16];
+    private int[] degreeCounts = new int[4];
+    private int maxDegree;
+    private UnionFind components = new UnionFind(0);
+    private boolean componentsStale;
+    private boolean materialStale;
+    private long[] pairKeys = new long[32];
+    private int[] pairRoadIds = new int[32];
+    private int[] pairRoadCounts = new int[32];
+    private int pairCount;
+
+    /**
+     * Constructs the statistics of an empty graph.
+     */
+    GraphStatistics() {
+        Arrays.fill(pairKeys, EMPTY);
+    }
+
+    /**
+     * Records a new point, which has no roads yet.
+     */
+    void addPoint() {
+        if (pointCount == degrees.length) {
+            degrees = Arrays.copyOf(degrees, pointCount * 2);
+        }
+        components.add();
+        degreeCounts[0]++;
+        pointCount++;
+    }
+
+    /**
+     * Records a new road.
+     *
+     * @param start The ID of the start point.
+     * @param end The ID of the end point.
+     * @param distance The distance of the road.
+     * @param roadId The ID of the road.
+     */
+    void addRoad(int start, int end, int distance, int roadId) {
+        roadCount++;
+        if (putPair(pairKey(start, end), roadId)) {
+            totalMaterial += distance;
+        }
+        raiseDegree(start);
+        raiseDegree(end);
+        components.union(start, end);
+    }
+
+    /**
+     * Records the removal of a road.
+     *
+     * @param start The ID of the start point.
+     * @param end The ID of the end point.
+     * @param distance The distance of the road.
+     * @param roadId The ID of the road.
+     */
+    void removeRoad(int start, int end, int distance, int roadId) {
+        roadCount--;
+        int slot = findSlot(pairKeys, pairKey(start, end));
+        pairRoadCounts[slot]--;
+        if (pairRoadIds[slot] == roadId) {
+            totalMaterial -= distance;
+            materialStale |= pairRoadCounts[slot] > 0;
+        }
+        componentsStale |= start != end && pairRoadCounts[slot] == 0;
+        lowerDegree(start);
+        lowerDegree(end);
+    }
+
+    /**
+     * Records a new distance of a road.
+     *
+     * @param start The ID of the start point.
+     * @param end The ID of the end point.
+     * @param roadId The ID of the road.
+     * @param oldDistance The distance of the road before the change.
+     * @param newDistance The distance of the road after the change.
+     */
+    void changeDistance(int start, int end, int roadId, int oldDistance, int newDistance) {
+        if (getPair(pairKey(start, end)) == roadId) {
+            totalMaterial += (long) newDistance - oldDistance;
+        }
+    }
+
+    /**
+     * Gets the number of points.
+     *
+     * @return The number of points.
+     */
+    int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Gets the number of roads.
+     *
+     * @return The number of roads.
+     */
+    int getRoadCount() {
+        return roadCount;
+    }
+
+    /**
+     * Gets the construction material of the roads, counting parallel roads once. The material is
+     * exact unless it is stale.
+     *
+     * @return The total distance of the roads between distinct pairs of points.
+     */
+    long getTotalMaterial() {
+        return totalMaterial;
+    }
+
+    /**
+     * Checks whether a removed road may have split a component since the components were built.
+     *
+     * @return True if the components have to be rebuilt before they are counted, false otherwise.
+     */
+    boolean hasStaleComponents() {
+        return componentsStale;
+    }
+
+    /**
+     * Builds the connected components again from all roads of the graph.
+     *
+     * @param roadCount The number of roads.
+     * @param roadStarts The start point ID of each road.
+     * @param roadEnds The end point ID of each road.
+     */
+    void rebuildComponents(int roadCount, IntArray roadStarts, IntArray roadEnds) {
+        UnionFind rebuilt = new UnionFind(pointCount);
+        for (int i = 0; i < roadCount; i++) {
+            rebuilt.union(roadStarts.get(i), roadEnds.get(i));
+        }
+        components = rebuilt;
+        componentsStale = false;
+    }
+
+    /**
+     * Checks whether a removed road left a pair of points whose material has to be counted again.
+     *
+     * @return True if the material has to be counted again before it is read, false otherwise.
+     */
+    boolean hasStaleMaterial() {
+        return materialStale;
+    }
+
+    /**
+     * Counts the material again from all roads of the graph, in the order they were added.
+     *
+     * @param roadCount The number of roads.
+     * @param roadStarts The start point ID of each road.
+     * @param roadEnds The end point ID of each road.
+     * @param roadDistances The distance of each road.
+     * @param roadIds The ID of each road.
+     */
+    void recountMaterial(int roadCount, IntArray roadStarts, IntArray roadEnds, IntArray roadDistances, IntArray roadIds) {
+        Arrays.fill(pairKeys, EMPTY);
+        Arrays.fill(pairRoadCounts, 0);
+        pairCount = 0;
+        totalMaterial = 0;
+        for (int i = 0; i < roadCount; i++) {
+            if (putPair(pairKey(roadStarts.get(i), roadEnds.get(i)), roadIds.get(i))) {
+                totalMaterial += roadDistances.get(i);
+            }
+        }
+        materialStale = false;
+    }
+
+    /**
+     * Gets the number of connected components, isolated points included. The count is exact unless
+     * the components are stale.
+     *
+     * @return The number of components.
+     */
+    int getComponentCount() {
+        return components.getSetCount();
+    }
+
+    /**
+     * Checks whether two points are in the same connected component. While the components are stale,
+     * points split apart by a removed road may still be reported as connected, but points reported
+     * as not connected never are. This may be called from several threads at once, as long as no
+     * road is added meanwhile.
+     *
+     * @param first The ID of the first point.
+     * @param second The ID of the second point.
+     * @return True if a route joins the points, false otherwise.
+     */
+    boolean isConnected(int first, int second) {
+        return components.find(first) == components.find(second);
+    }
+
+    /**
+     * Gets the number of roads at a point, a road from the point to itself counting twice.
+     *
+     * @param point The ID of the point.
+     * @return The degree of the point.
+     */
+    int getDegree(int point) {
+        return degrees[point];
+    }
+
+    /**
+     * Gets the number of points with the specified degree.
+     *
+     * @param degree The degree.
+     * @return The number of points with that many roads.
+     */
+    int getDegreeCount(int degree) {
+        return degree < degreeCounts.length ? degreeCounts[degree] : 0;
+    }
+
+    /**
+     * Gets the largest degree of any point.
+     *
+     * @return The largest degree.
+     */
+    int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Moves a point up one degree in the histogram.
+     *
+     * @param point The ID of the point.
+     */
+    private void raiseDegree(int point) {
+        int degree = degrees[point]++;
+        if (degree + 1 == degreeCounts.length) {
+            degreeCounts = Arrays.copyOf(degreeCounts, degreeCounts.length * 2);
+        }
+        degreeCounts[degree]--;
+        degreeCounts[degree + 1]++;
+        maxDegree = Math.max(maxDegree, degree + 1);
+    }
+
+    /**
+     * Moves a point down one degree in the histogram.
+     *
+     * @param point The ID of the point.
+     */
+    private void lowerDegree(int point) {
+        int degree = degrees[point]--;
+        degreeCounts[degree]--;
+        degreeCounts[degree - 1]++;
+        if (degree == maxDegree && degreeCounts[degree] == 0) {
+            maxDegree = degree - 1;
+        }
+    }
+
+    /**
+     * Packs an unordered pair of points into one key.
+     *
+     * @param start The ID of one point.
+     * @param end The ID of the other point.
+     * @return The key of the pair.
+     */
+    private static long pairKey(int start, int end) {
+        return ((long) Math.min(start, end) << 32) | Math.max(start, end);
+    }
+
+    /**
+     * Records a road between a pair of points, which is counted for the pair if it has no other road.
+     *
+     * @param key The key of the pair.
+     * @param roadId The ID of the road.
+     * @return True if the pair had no road before, false otherwise.
+     */
+    private boolean putPair(long key, int roadId) {
+        int slot = findSlot(pairKeys, key);
+        if (pairKeys[slot] == key) {
+            if (pairRoadCounts[slot]++ > 0) {
+                return false;
+            }
+            pairRoadIds[slot] = roadId;
+            return true;
+        }
+        pairKeys[slot] = key;
+        pairRoadIds[slot] = roadId;
+        pairRoadCounts[slot] = 1;
+        pairCount++;
+        if (pairCount * 2 > pairKeys.length) {
+            long[] oldKeys = pairKeys;
+            int[] oldRoadIds = pairRoadIds;
+            int[] oldRoadCounts = pairRoadCounts;
+            pairKeys = new long[oldKeys.length * 2];
+            pairRoadIds = new int[oldKeys.length * 2];
+            pairRoadCounts = new int[oldKeys.length * 2];
+            Arrays.fill(pairKeys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int newSlot = findSlot(pairKeys, oldKeys[i]);
+                    pairKeys[newSlot] = oldKeys[i];
+                    pairRoadIds[newSlot] = oldRoadIds[i];
+                    pairRoadCounts[newSlot] = oldRoadCounts[i];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the ID of the road counted for a pair of points.
+     *
+     * @param key The key of the pair.
+     * @return The ID of the road counted for the pair.
+     */
+    private int getPair(long key) {
+        return pairRoadIds[findSlot(pairKeys, key)];
+    }
+
+    /**
+     * Finds the slot of a pair in the table, or the empty slot where it belongs.
+     *
+     * @param keys The keys of the table.
+     * @param key The key of the pair.
+     * @return The slot index.
+     */
+    private static int findSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GraphStore class decides where a graph keeps the arrays that grow with its roads and points:
+ * the road arrays, the compressed view the searches run on, the roads sorted for the spanning tree
+ * algorithms and the bytes of the point names. The default store keeps them in ordinary arrays on
+ * the Java heap. A store opened on a directory keeps them in files there instead, mapped outside
+ * the heap in chunks, so that the route and spanning tree searches of a very large map run on
+ * memory the garbage collector never copies or scans, and a graph read from a snapshot uses its
+ * compressed view straight from the mapped file. The search scratch arrays, the road index, the
+ * statistics and the structures prepared for the faster route algorithms stay on the heap.
+ */
+class GraphStore {
+    static final GraphStore HEAP = new GraphStore(null);
+
+    private final Path directory;
+
+    /**
+     * Constructs a GraphStore.
+     *
+     * @param directory The directory the arrays are mapped from, or null to keep them on the heap.
+     */
+    private GraphStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens a store that keeps the arrays in files mapped from the specified directory.
+     *
+     * @param path The path of an existing directory.
+     * @return The store.
+     * @throws IllegalArgumentException If the path is not a directory.
+     */
+    static GraphStore inDirectory(String path) {
+        Path directory = Paths.get(path);
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + path);
+        }
+        return new GraphStore(directory);
+    }
+
+    /**
+     * Creates an array of zeros.
+     *
+     * @param length The number of values.
+     * @return The new array.
+     */
+    IntArray allocate(int length) {
+        return directory == null ? new HeapIntArray(length) : MappedIntArray.create(directory, length);
+    }
+
+    /**
+     * Creates a buffer of zero bytes.
+     *
+     * @param capacity The number of bytes.
+     * @return The new buffer.
+     */
+    ByteBuffer allocateBytes(int capacity) {
+        return directory == null ? ByteBuffer.allocate(capacity) : mapNewFile(directory, 1, capacity)[0];
+    }
+
+    /**
+     * Reads a length-prefixed int array written by GraphSnapshot.writeInts into an array that can
+     * be written.
+     *
+     * @param in The reader of the snapshot, positioned at the array.
+     * @return The array read.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    IntArray readInts(SnapshotReader in) throws IOException {
+        IntArray view = viewInts(in);
+        return view instanceof MappedIntArray ? view.grow(view.length()) : view;
+    }
+
+    /**
+     * Reads a length-prefixed int array written by GraphSnapshot.writeInts into an array that is
+     * only read. A store on a directory does not copy the values but reads them from their mapping
+     * of the file, which must not change afterwards.
+     *
+     * @param in The reader of the snapshot, positioned at the array.
+     * @return The array read.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    IntArray viewInts(SnapshotReader in) throws IOException {
+        if (directory == null) {
+            return new HeapIntArray(in.readInts());
+        }
+        int length = in.readInt();
+        return new MappedIntArray(directory, in.viewInts(length, MappedIntArray.CHUNK_SIZE), length);
+    }
+
+    /**
+     * Reads a length-prefixed byte array written by GraphSnapshot.writeBytes into a buffer that is
+     * only read. A store on a directory does not copy the bytes but reads them from their mapping
+     * of the file, which must not change afterwards.
+     *
+     * @param in The reader of the snapshot, positioned at the array.
+     * @return The buffer over the bytes read.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    ByteBuffer viewBytes(SnapshotReader in) throws IOException {
+        return directory == null ? ByteBuffer.wrap(in.readBytes()) : in.viewBytes();
+    }
+
+    /**
+     * Maps consecutive regions of a new file in the specified directory. The file is deleted right
+     * away, and its space is given back once the mappings are garbage collected.
+     *
+     * @param directory The directory to create the file in.
+     * @param count The number of regions.
+     * @param size The number of bytes of every region.
+     * @return The mappings of the regions, filled with zeros.
+     * @throws UncheckedIOException If the file cannot be created or mapped.
+     */
+    static MappedByteBuffer[] mapNewFile(Path directory, int count, long size) {
+        MappedByteBuffer[] regions = new MappedByteBuffer[count];
+        try {
+            Path file = Files.createTempFile(directory, "graph", ".store");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                for (int region = 0; region < count; region++) {
+                    regions[region] = channel.map(FileChannel.MapMode.READ_WRITE, region * size, size);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map the graph store in " + directory, e);
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * The HeapIntArray class is an IntArray kept in an ordinary int array on the Java heap.
+ */
+final class HeapIntArray extends IntArray {
+    private final int[] values;
+
+    /**
+     * Constructs a HeapIntArray of zeros.
+     *
+     * @param length The number of values.
+     */
+    HeapIntArray(int length) {
+        this.values = new int[length];
+    }
+
+    /**
+     * Constructs a HeapIntArray over the specified values, which are not copied.
+     *
+     * @param values The values of the array.
+     */
+    HeapIntArray(int[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Gets the number of values in the array.
+     *
+     * @return The length of the array.
+     */
+    @Override
+    int length() {
+        return values.length;
+    }
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @return The value.
+     */
+    @Override
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    @Override
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    /**
+     * Copies the values into a longer int array.
+     *
+     * @param length The length of the new array, at least the length of this one.
+     * @return The longer array.
+     */
+    @Override
+    IntArray grow(int length) {
+        return new HeapIntArray(Arrays.copyOf(values, length));
+    }
+
+    /**
+     * Checks whether another array holds the same values as this one, comparing two heap arrays
+     * in bulk.
+     *
+     * @param other The array to compare with.
+     * @return True if both arrays have the same length and values, false otherwise.
+     */
+    @Override
+    boolean contentEquals(IntArray other) {
+        return other instanceof HeapIntArray ? Arrays.equals(values, ((HeapIntArray) other).values) : super.contentEquals(other);
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * The HierarchySearch class measures distances to the ending point of a route query on a
+ * contraction hierarchy. Aiming it at the ending point settles the upward search space of that
+ * point once. The distance of any other point to the end is then the shortest climb from that
+ * point to a point of the space plus the distance of that point, which is worked out over the
+ * upward arcs and remembered for every point passed on the way, so neighbouring points share the
+ * work of their overlapping upward spaces. Its arrays are sized once for the hierarchy and reused
+ * by every query, so an instance must not be shared between threads.
+ * <p>
+ * The distances are exact, so as the lower bound of a restricted Dijkstra search they keep it on
+ * the points of shortest routes, where it chooses among routes of equal length just like a full
+ * search.
+ */
+class HierarchySearch implements LowerBound {
+    private final ContractionHierarchy hierarchy;
+    private final int[] targetDistances;
+    private final int[] targetMarks;
+    private final long[] knownDistances;
+    private final int[] knownMarks;
+    private final int[] pendingPoints;
+    private final int[] pendingArcs;
+    private final IndexedHeap queue;
+    private int mark;
+    private long settledCount;
+    private long relaxedCount;
+
+    /**
+     * Constructs a HierarchySearch for the specified contraction hierarchy.
+     *
+     * @param hierarchy The contraction hierarchy to search.
+     */
+    HierarchySearch(ContractionHierarchy hierarchy) {
+        int pointCount = hierarchy.getPointCount();
+        this.hierarchy = hierarchy;
+        this.targetDistances = new int[pointCount];
+        this.targetMarks = new int[pointCount];
+        this.knownDistances = new long[pointCount];
+        this.knownMarks = new int[pointCount];
+        this.pendingPoints = new int[pointCount];
+        this.pendingArcs = new int[pointCount];
+        this.queue = new IndexedHeap(pointCount);
+    }
+
+    /**
+     * Gets the contraction hierarchy this search runs on.
+     *
+     * @return The contraction hierarchy.
+     */
+    ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Settles the whole upward search space of the ending point and forgets the distances
+     * measured for the last ending point.
+     *
+     * @param target The ID of the ending point.
+     */
+    void aim(int target) {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(targetMarks, 0);
+            Arrays.fill(knownMarks, 0);
+            mark = 0;
+        }
+        mark++;
+        queue.clear();
+        targetMarks[target] = mark;
+        targetDistances[target] = 0;
+        queue.push(target, target);
+        while (!queue.isEmpty()) {
+            int point = queue.poll();
+            settledCount++;
+            relaxedCount += hierarchy.endUpArc(point) - hierarchy.firstUpArc(point);
+            for (int arc = hierarchy.firstUpArc(point); arc < hierarchy.endUpArc(point); arc++) {
+                int next = hierarchy.upTarget(arc);
+                int newDist = targetDistances[point] + hierarchy.upWeight(arc);
+                if (targetMarks[next] != mark || newDist < targetDistances[next]) {
+                    targetMarks[next] = mark;
+                    targetDistances[next] = newDist;
+                    queue.push(next, ((long) newDist << 32) | next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the distance from the specified point to the ending point. The upward arcs below the
+     * point are walked depth first; every point is finished once its higher neighbours are, since
+     * the arcs never lead back down.
+     *
+     * @param point The ID of the point.
+     * @return The shortest distance to the ending point, or Long.MAX_VALUE if it cannot be reached.
+     */
+    @Override
+    public long toTarget(int point) {
+        if (knownMarks[point] == mark) {
+            return knownDistances[point];
+        }
+        int depth = 0;
+        enter(point, depth++);
+        while (depth > 0) {
+            int current = pendingPoints[depth - 1];
+            int arc = pendingArcs[depth - 1];
+            if (arc < hierarchy.endUpArc(current)) {
+                pendingArcs[depth - 1]++;
+                int next = hierarchy.upTarget(arc);
+                if (knownMarks[next] != mark) {
+                    enter(next, depth++);
+                } else {
+                    climb(current, arc, next);
+                }
+                continue;
+            }
+            depth--;
+            if (depth > 0) {
+                int below = pendingPoints[depth - 1];
+                climb(below, pendingArcs[depth - 1] - 1, current);
+            }
+        }
+        return knownDistances[point];
+    }
+
+    /**
+     * Starts measuring a point, with its distance from the upward space of the ending point if it
+     * lies there, and puts it on the stack of points being walked.
+     *
+     * @param point The ID of the point.
+     * @param depth The position of the point on the stack.
+     */
+    private void enter(int point, int depth) {
+        settledCount++;
+        relaxedCount += hierarchy.endUpArc(point) - hierarchy.firstUpArc(point);
+        knownMarks[point] = mark;
+        knownDistances[point] = targetMarks[point] == mark ? targetDistances[point] : Long.MAX_VALUE;
+        pendingPoints[depth] = point;
+        pendingArcs[depth] = hierarchy.firstUpArc(point);
+    }
+
+    /**
+     * Shortens the distance of a point if climbing the specified upward arc leads to a shorter route.
+     *
+     * @param point The ID of the point.
+     * @param arc The index of the upward arc leaving the point.
+     * @param next The ID of the point the arc leads to, whose distance is known.
+     */
+    private void climb(int point, int arc, int next) {
+        if (knownDistances[next] != Long.MAX_VALUE) {
+            knownDistances[point] = Math.min(knownDistances[point], knownDistances[next] + hierarchy.upWeight(arc));
+        }
+    }
+
+    /**
+     * Hands the effort counted since the last hand-over to the specified counters as one search,
+     * counting every measured point as settled, and starts counting again.
+     *
+     * @param counters The counters to add the effort to.
+     */
+    void drainCounts(Metrics.Counters counters) {
+        counters.add(settledCount, relaxedCount, queue.getPushCount(), queue.getPollCount(), 0, queue.getPeakSize());
+        settledCount = 0;
+        relaxedCount = 0;
+        queue.resetCounts();
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * The IndexedHeap class is a 4-ary min-heap of points keyed by long values. Every point is in the
+ * heap at most once and its slot is indexed, so a smaller key for a queued point moves the point up
+ * in place instead of adding another entry. The heap holds only primitive arrays sized once for the
+ * graph, so pushing and polling never allocate. It counts its pushes and polls and its largest
+ * size until the counts are reset.
+ */
+class IndexedHeap {
+    private static final int ARITY = 4;
+
+    private final int[] points;
+    private final long[] keys;
+    private final int[] slots;
+    private int size;
+    private long pushCount;
+    private long pollCount;
+    private int peakSize;
+
+    /**
+     * Constructs an empty IndexedHeap for the points of a graph.
+     *
+     * @param pointCount The number of points in the graph.
+     */
+    IndexedHeap(int pointCount) {
+        this.points = new int[pointCount];
+        this.keys = new long[pointCount];
+        this.slots = new int[pointCount];
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Checks whether the heap is empty.
+     *
+     * @return True if no point is queued, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every queued point.
+     */
+    void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            slots[points[slot]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Checks whether the specified point is queued.
+     *
+     * @param point The ID of the point.
+     * @return True if the point is in the heap, false otherwise.
+     */
+    boolean contains(int point) {
+        return slots[point] != -1;
+    }
+
+    /**
+     * Queues a point with the specified key, or lowers its key if it is already queued with a larger one.
+     *
+     * @param point The ID of the point.
+     * @param key The key of the point.
+     */
+    void push(int point, long key) {
+        int slot = slots[point];
+        if (slot == -1) {
+            slot = size++;
+            peakSize = Math.max(peakSize, size);
+        } else if (key >= keys[slot]) {
+            return;
+        }
+        pushCount++;
+        siftUp(slot, point, key);
+    }
+
+    /**
+     * Gets the number of points queued or moved up since the counts were last reset.
+     *
+     * @return The number of pushes that changed the heap.
+     */
+    long getPushCount() {
+        return pushCount;
+    }
+
+    /**
+     * Gets the number of points polled since the counts were last reset.
+     *
+     * @return The number of polls.
+     */
+    long getPollCount() {
+        return pollCount;
+    }
+
+    /**
+     * Gets the largest number of queued points since the counts were last reset.
+     *
+     * @return The peak size of the heap.
+     */
+    int getPeakSize() {
+        return peakSize;
+    }
+
+    /**
+     * Resets the push and poll counts and the peak size.
+     */
+    void resetCounts() {
+        pushCount = 0;
+        pollCount = 0;
+        peakSize = size;
+    }
+
+    /**
+     * Gets the smallest key in the heap.
+     *
+     * @return The key of the first point.
+     */
+    long peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Removes the point with the smallest key.
+     *
+     * @return The ID of the removed point.
+     */
+    int poll() {
+        int first = points[0];
+        pollCount++;
+        slots[first] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, points[size], keys[size]);
+        }
+        return first;
+    }
+
+    /**
+     * Moves a point up from the specified slot until its parent has a smaller key.
+     *
+     * @param slot The slot to start from.
+     * @param point The ID of the point.
+     * @param key The key of the point.
+     */
+    private void siftUp(int slot, int point, long key) {
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(slot, points[parent], keys[parent]);
+            slot = parent;
+        }
+        place(slot, point, key);
+    }
+
+    /**
+     * Moves a point down from the specified slot until none of its children has a smaller key.
+     *
+     * @param slot The slot to start from.
+     * @param point The ID of the point.
+     * @param key The key of the point.
+     */
+    private void siftDown(int slot, int point, long key) {
+        while (true) {
+            int firstChild = slot * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int smallest = firstChild;
+            int endChild = Math.min(firstChild + ARITY, size);
+            for (int child = firstChild + 1; child < endChild; child++) {
+                if (keys[child] < keys[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (keys[smallest] >= key) {
+                break;
+            }
+            place(slot, points[smallest], keys[smallest]);
+            slot = smallest;
+        }
+        place(slot, point, key);
+    }
+
+    /**
+     * Stores a point and its key in the specified slot.
+     *
+     * @param slot The slot to fill.
+     * @param point The ID of the point.
+     * @param key The key of the point.
+     */
+    private void place(int slot, int point, long key) {
+        points[slot] = point;
+        keys[slot] = key;
+        slots[point] = slot;
+    }
+}
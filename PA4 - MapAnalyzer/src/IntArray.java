@@ -0,0 +1,56 @@
+/**
+ * The IntArray class is a fixed-length array of ints handed out by a GraphStore, which decides
+ * where the values live: in an int array on the Java heap or in files mapped outside of it.
+ */
+abstract class IntArray {
+    /**
+     * Gets the number of values in the array.
+     *
+     * @return The length of the array.
+     */
+    abstract int length();
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @return The value.
+     */
+    abstract int get(int index);
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    abstract void set(int index, int value);
+
+    /**
+     * Creates an array of the specified length in the same store that starts with the values of
+     * this one. The values past the end of this array are zero, and this array must not be used
+     * afterwards, since the new array may share its storage.
+     *
+     * @param length The length of the new array, at least the length of this one.
+     * @return The longer array.
+     */
+    abstract IntArray grow(int length);
+
+    /**
+     * Checks whether another array holds the same values as this one.
+     *
+     * @param other The array to compare with.
+     * @return True if both arrays have the same length and values, false otherwise.
+     */
+    boolean contentEquals(IntArray other) {
+        if (length() != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < length(); i++) {
+            if (get(i) != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+/**
+ * The IntList class is a growable list of primitive ints, used where a List of Integer
+ * would box every element.
+ */
+class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty IntList.
+     */
+    IntList() {
+        this.values = new int[8];
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value The value to be added.
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Gets the value at the specified position.
+     *
+     * @param index The position of the value.
+     * @return The value at that position.
+     */
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Removes and returns the last value of the list.
+     *
+     * @return The removed value.
+     */
+    int removeLast() {
+        return values[--size];
+    }
+
+    /**
+     * Gets the number of values in the list.
+     *
+     * @return The number of values.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes every value from the list, keeping its capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,363 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The KShortestRoutes class finds the shortest routes between two points that visit no point twice,
+ * shortest first, with Yen's algorithm. Every route after the first leaves an earlier route at some
+ * spur point and goes on to the target without using a point before the spur or a road an earlier
+ * route with the same beginning already took from there.
+ * <p>
+ * One full search from the target gives the distance of every point to it. That shortest path tree
+ * answers most spur searches outright, since the tree route from the spur is taken whenever it avoids
+ * the forbidden points and roads. Otherwise an A* search runs, guided by the tree distances, which
+ * stay lower bounds when points and roads are left out. Once enough candidate routes are known, spurs
+ * whose lower bound exceeds the longest candidate that can still be chosen are skipped, and A* stops
+ * at that length as well. The arrays are sized once for the graph and reused by every query, so an
+ * instance must not be shared between threads.
+ */
+class KShortestRoutes {
+    private final CsrGraph graph;
+    private final int[] distances;
+    private final int[] previousPoints;
+    private final int[] previousArcs;
+    private final int[] reachedMarks;
+    private final int[] settledMarks;
+    private final int[] bannedMarks;
+    private final IndexedHeap queue;
+    private int mark;
+    private int banMark;
+
+    /**
+     * The Route class is one route found by the search, ordered by length and then by the IDs of its roads.
+     */
+    private static class Route implements Comparable<Route> {
+        private final IntList steps;
+        private final long length;
+
+        /**
+         * Constructs a Route from its roads.
+         *
+         * @param steps The roads of the route as from, to, distance and road ID quadruples.
+         */
+        Route(IntList steps) {
+            long total = 0;
+            for (int i = 0; i < steps.size(); i += 4) {
+                total += steps.get(i + 2);
+            }
+            this.steps = steps;
+            this.length = total;
+        }
+
+        /**
+         * Gets the number of roads of the route.
+         *
+         * @return The number of roads.
+         */
+        int getRoadCount() {
+            return steps.size() / 4;
+        }
+
+        /**
+         * Gets the point a road of the route starts at.
+         *
+         * @param road The position of the road on the route.
+         * @return The ID of the point.
+         */
+        int from(int road) {
+            return steps.get(road * 4);
+        }
+
+        /**
+         * Gets the distance of a road of the route.
+         *
+         * @param road The position of the road on the route.
+         * @return The distance of the road.
+         */
+        int distance(int road) {
+            return steps.get(road * 4 + 2);
+        }
+
+        /**
+         * Gets the ID of a road of the route.
+         *
+         * @param road The position of the road on the route.
+         * @return The ID of the road.
+         */
+        int roadId(int road) {
+            return steps.get(road * 4 + 3);
+        }
+
+        /**
+         * Checks whether this route begins with the same roads as another route, and goes on after them.
+         *
+         * @param other The other route.
+         * @param roadCount The number of roads to compare.
+         * @return True if both routes take the same first roads and this route is longer than them.
+         */
+        boolean sharesRoot(Route other, int roadCount) {
+            if (getRoadCount() <= roadCount) {
+                return false;
+            }
+            for (int road = 0; road < roadCount; road++) {
+                if (roadId(road) != other.roadId(road)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares two routes by length, then by the IDs of their roads in order.
+         *
+         * @param other The route to compare with.
+         * @return A negative number, zero or a positive number as this route comes first, equal or later.
+         */
+        @Override
+        public int compareTo(Route other) {
+            if (length != other.length) {
+                return Long.compare(length, other.length);
+            }
+            for (int road = 0; road < Math.min(getRoadCount(), other.getRoadCount()); road++) {
+                if (roadId(road) != other.roadId(road)) {
+                    return Integer.compare(roadId(road), other.roadId(road));
+                }
+            }
+            return Integer.compare(getRoadCount(), other.getRoadCount());
+        }
+    }
+
+    /**
+     * Constructs a KShortestRoutes for the specified graph.
+     *
+     * @param graph The compressed graph to search.
+     */
+    KShortestRoutes(CsrGraph graph) {
+        int pointCount = graph.getPointCount();
+        this.graph = graph;
+        this.distances = new int[pointCount];
+        this.previousPoints = new int[pointCount];
+        this.previousArcs = new int[pointCount];
+        this.reachedMarks = new int[pointCount];
+        this.settledMarks = new int[pointCount];
+        this.bannedMarks = new int[pointCount];
+        this.queue = new IndexedHeap(pointCount);
+    }
+
+    /**
+     * Gets the graph this search runs on.
+     *
+     * @return The compressed graph.
+     */
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Finds up to the specified number of shortest routes between two different points, shortest
+     * first. The first route is the one Dijkstra's algorithm returns.
+     *
+     * @param forward A search on the same graph, used for the first route.
+     * @param backward Another search on the same graph, used for the shortest path tree towards the target.
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     * @param count The largest number of routes to find.
+     * @return The roads of each route as from, to, distance and road ID quadruples.
+     */
+    List<IntList> findRoutes(ShortestPathSearch forward, ShortestPathSearch backward, int source, int target, int count) {
+        List<IntList> found = new ArrayList<>();
+        forward.search(source, target);
+        if (count <= 0 || source == target || !forward.isSettled(target)) {
+            return found;
+        }
+        backward.search(target);
+
+        List<Route> routes = new ArrayList<>();
+        routes.add(new Route(treeRoute(forward, target, source, true)));
+        TreeSet<Route> candidates = new TreeSet<>();
+        while (routes.size() < count) {
+            Route last = routes.get(routes.size() - 1);
+            long rootLength = 0;
+            for (int road = 0; road < last.getRoadCount(); road++) {
+                int spur = last.from(road);
+                long bound = candidateBound(candidates, count - routes.size());
+                if (rootLength + backward.getDistance(spur) <= bound) {
+                    IntList spurSteps = findSpurRoute(backward, last, road, routes, target, bound - rootLength);
+                    if (spurSteps != null) {
+                        IntList steps = new IntList();
+                        for (int i = 0; i < road * 4; i++) {
+                            steps.add(last.steps.get(i));
+                        }
+                        for (int i = 0; i < spurSteps.size(); i++) {
+                            steps.add(spurSteps.get(i));
+                        }
+                        candidates.add(new Route(steps));
+                    }
+                }
+                rootLength += last.distance(road);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            routes.add(candidates.pollFirst());
+        }
+
+        for (Route route : routes) {
+            found.add(route.steps);
+        }
+        return found;
+    }
+
+    /**
+     * Gets the length a new candidate must not exceed to be among the routes still to be chosen.
+     *
+     * @param candidates The candidate routes found so far.
+     * @param needed The number of routes still to be chosen.
+     * @return The length of the last candidate that would be chosen, or Long.MAX_VALUE if there are too few candidates.
+     */
+    private static long candidateBound(TreeSet<Route> candidates, int needed) {
+        if (candidates.size() < needed) {
+            return Long.MAX_VALUE;
+        }
+        int position = 0;
+        for (Route candidate : candidates) {
+            if (++position == needed) {
+                return candidate.length;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Finds the shortest route from the spur point of a route to the target that avoids the points
+     * before the spur and the roads that routes with the same beginning take from the spur.
+     *
+     * @param backward The search holding the shortest path tree towards the target.
+     * @param last The route the spur lies on.
+     * @param spurRoad The position of the road of the route that starts at the spur point.
+     * @param routes The routes chosen so far.
+     * @param target The ID of the ending point.
+     * @param limit The largest length of interest.
+     * @return The roads from the spur to the target as from, to, distance and road ID quadruples, or null if there is no such route.
+     */
+    private IntList findSpurRoute(ShortestPathSearch backward, Route last, int spurRoad, List<Route> routes, int target, long limit) {
+        int spur = last.from(spurRoad);
+        banMark++;
+        for (int road = 0; road < spurRoad; road++) {
+            bannedMarks[last.from(road)] = banMark;
+        }
+        IntList bannedRoads = new IntList();
+        for (Route route : routes) {
+            if (route.sharesRoot(last, spurRoad)) {
+                bannedRoads.add(route.roadId(spurRoad));
+            }
+        }
+
+        if (!contains(bannedRoads, graph.roadId(backward.getPreviousArc(spur)))) {
+            boolean allowed = true;
+            for (int point = spur; point != target && allowed; point = backward.getPreviousPoint(point)) {
+                allowed = bannedMarks[backward.getPreviousPoint(point)] != banMark;
+            }
+            if (allowed) {
+                return treeRoute(backward, spur, target, false);
+            }
+        }
+        return searchSpur(backward, spur, target, bannedRoads, limit);
+    }
+
+    /**
+     * Runs an A* search from the spur point to the target, guided by the distances of the shortest
+     * path tree towards the target, skipping banned points and the banned roads from the spur.
+     *
+     * @param backward The search holding the shortest path tree towards the target.
+     * @param spur The ID of the spur point.
+     * @param target The ID of the ending point.
+     * @param bannedRoads The IDs of the roads that must not be taken from the spur.
+     * @param limit The largest length of interest.
+     * @return The roads from the spur to the target as from, to, distance and road ID quadruples, or null if there is no such route.
+     */
+    private IntList searchSpur(ShortestPathSearch backward, int spur, int target, IntList bannedRoads, long limit) {
+        mark++;
+        queue.clear();
+        distances[spur] = 0;
+        reachedMarks[spur] = mark;
+        queue.push(spur, ((long) backward.getDistance(spur) << 32) | spur);
+        while (!queue.isEmpty() && (queue.peekKey() >>> 32) <= limit) {
+            int point = queue.poll();
+            settledMarks[point] = mark;
+            if (point == target) {
+                IntList reversed = new IntList();
+                for (int step = target; step != spur; step = previousPoints[step]) {
+                    reversed.add(step);
+                }
+                IntList steps = new IntList();
+                for (int i = reversed.size() - 1; i >= 0; i--) {
+                    int to = reversed.get(i);
+                    steps.add(previousPoints[to]);
+                    steps.add(to);
+                    steps.add(graph.weight(previousArcs[to]));
+                    steps.add(graph.roadId(previousArcs[to]));
+                }
+                return steps;
+            }
+            for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                int next = graph.target(arc);
+                if (settledMarks[next] == mark || bannedMarks[next] == banMark || !backward.isReached(next)
+                        || point == spur && contains(bannedRoads, graph.roadId(arc))) {
+                    continue;
+                }
+                int newDist = distances[point] + graph.weight(arc);
+                if (reachedMarks[next] != mark || newDist < distances[next]) {
+                    reachedMarks[next] = mark;
+                    distances[next] = newDist;
+                    previousPoints[next] = point;
+                    previousArcs[next] = arc;
+                    queue.push(next, ((long) newDist + backward.getDistance(next) << 32) | next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a route off a shortest path tree.
+     *
+     * @param search The search holding the tree.
+     * @param from The point to start reading at.
+     * @param root The point the tree grows from.
+     * @param towardsFrom True to list the roads from the root to the starting point, false to list them from the starting point to the root.
+     * @return The roads of the route as from, to, distance and road ID quadruples.
+     */
+    private IntList treeRoute(ShortestPathSearch search, int from, int root, boolean towardsFrom) {
+        IntList points = new IntList();
+        for (int point = from; point != root; point = search.getPreviousPoint(point)) {
+            points.add(point);
+        }
+        IntList steps = new IntList();
+        for (int i = 0; i < points.size(); i++) {
+            int point = towardsFrom ? points.get(points.size() - 1 - i) : points.get(i);
+            int arc = search.getPreviousArc(point);
+            steps.add(towardsFrom ? search.getPreviousPoint(point) : point);
+            steps.add(towardsFrom ? point : search.getPreviousPoint(point));
+            steps.add(graph.weight(arc));
+            steps.add(graph.roadId(arc));
+        }
+        return steps;
+    }
+
+    /**
+     * Checks whether a small list holds a value.
+     *
+     * @param values The list to look in.
+     * @param value The value to look for.
+     * @return True if the list holds the value, false otherwise.
+     */
+    private static boolean contains(IntList values, int value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The LandmarkTable class holds the distances from a few landmark points to every point of a graph.
+ * By the triangle inequality, the difference of the landmark distances of two points is a lower
+ * bound of the distance between them, which guides A* searches towards their target.
+ * Landmarks are chosen one by one as the point farthest from the landmarks chosen so far.
+ */
+class LandmarkTable {
+    private static final int MAGIC = 0x414C5431;
+    private static final int VERSION = 1;
+    private static final int UNREACHABLE = -1;
+
+    private final long fingerprint;
+    private final int pointCount;
+    private final int[] landmarks;
+    private final int[] distances;
+
+    /**
+     * Constructs a LandmarkTable from already computed landmark distances.
+     *
+     * @param fingerprint The fingerprint of the graph the distances belong to.
+     * @param pointCount The number of points in the graph.
+     * @param landmarks The IDs of the landmark points.
+     * @param distances The distances, where the distance of point p from landmark i is at p * landmarks.length + i.
+     */
+    private LandmarkTable(long fingerprint, int pointCount, int[] landmarks, int[] distances) {
+        this.fingerprint = fingerprint;
+        this.pointCount = pointCount;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Chooses landmarks on the graph and computes their distances to every point.
+     *
+     * @param search A search on the compressed graph, used for one full search per landmark.
+     * @param fingerprint The fingerprint of the graph.
+     * @param count The number of landmarks to choose.
+     * @return The computed landmark table.
+     */
+    static LandmarkTable compute(ShortestPathSearch search, long fingerprint, int count) {
+        int pointCount = search.getGraph().getPointCount();
+        int landmarkCount = Math.min(count, pointCount);
+        int[] landmarks = new int[landmarkCount];
+        int[] distances = new int[pointCount * landmarkCount];
+        long[] nearestLandmark = new long[pointCount];
+        Arrays.fill(nearestLandmark, Long.MAX_VALUE);
+
+        int next = farthestFrom(search, 0);
+        for (int i = 0; i < landmarkCount; i++) {
+            landmarks[i] = next;
+            nearestLandmark[next] = -1;
+            search.search(next);
+            for (int point = 0; point < pointCount; point++) {
+                int distance = search.isReached(point) ? search.getDistance(point) : UNREACHABLE;
+                distances[point * landmarkCount + i] = distance;
+                if (distance != UNREACHABLE && nearestLandmark[point] > distance) {
+                    nearestLandmark[point] = distance;
+                }
+            }
+            for (int point = 0; point < pointCount; point++) {
+                if (nearestLandmark[point] > nearestLandmark[next]) {
+                    next = point;
+                }
+            }
+        }
+        return new LandmarkTable(fingerprint, pointCount, landmarks, distances);
+    }
+
+    /**
+     * Finds the point farthest from the specified point within its connected part of the graph.
+     *
+     * @param search A search on the compressed graph.
+     * @param point The ID of the point to measure from.
+     * @return The ID of the farthest reachable point.
+     */
+    private static int farthestFrom(ShortestPathSearch search, int point) {
+        search.search(point);
+        int farthest = point;
+        for (int other = 0; other < search.getGraph().getPointCount(); other++) {
+            if (search.isReached(other) && search.getDistance(other) > search.getDistance(farthest)) {
+                farthest = other;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Gets a lower bound of the distance between two points from their landmark distances.
+     *
+     * @param point The ID of the first point.
+     * @param target The ID of the second point.
+     * @return A lower bound of the distance, or Long.MAX_VALUE if a landmark shows that the points are not connected.
+     */
+    long lowerBound(int point, int target) {
+        int count = landmarks.length;
+        long bound = 0;
+        for (int i = 0; i < count; i++) {
+            int fromPoint = distances[point * count + i];
+            int fromTarget = distances[target * count + i];
+            if (fromPoint == UNREACHABLE || fromTarget == UNREACHABLE) {
+                if (fromPoint != fromTarget) {
+                    return Long.MAX_VALUE;
+                }
+                continue;
+            }
+            bound = Math.max(bound, Math.abs(fromTarget - fromPoint));
+        }
+        return bound;
+    }
+
+    /**
+     * Writes the table to a binary file so that later runs on the same map can load it.
+     *
+     * @param path The path of the file to write.
+     * @return True if the file was written, false otherwise.
+     */
+    boolean save(String path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(pointCount);
+            out.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (int distance : distances) {
+                out.writeInt(distance);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads a table written by save, if it was computed for a graph with the specified fingerprint.
+     *
+     * @param path The path of the file to read.
+     * @param fingerprint The fingerprint of the graph the table must belong to.
+     * @param pointCount The number of points in the graph.
+     * @return The loaded table, or null if there is no such file or it belongs to another graph.
+     */
+    static LandmarkTable load(String path, long fingerprint, int pointCount) {
+        if (!Files.isRegularFile(Paths.get(path))) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint || in.readInt() != pointCount) {
+                return null;
+            }
+            int[] landmarks = new int[in.readInt()];
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = in.readInt();
+            }
+            int[] distances = new int[pointCount * landmarks.length];
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = in.readInt();
+            }
+            return new LandmarkTable(fingerprint, pointCount, landmarks, distances);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
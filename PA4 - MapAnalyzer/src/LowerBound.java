@@ -0,0 +1,13 @@
+/**
+ * The LowerBound interface gives, for any point, a distance that the shortest route from that
+ * point to a fixed target is known not to be shorter than.
+ */
+interface LowerBound {
+    /**
+     * Gets a lower bound of the distance from the specified point to the target.
+     *
+     * @param point The ID of the point.
+     * @return A distance no longer than the shortest route from the point to the target.
+     */
+    long toTarget(int point);
+}
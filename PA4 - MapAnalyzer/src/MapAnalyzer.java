@@ -1,3 +1,7 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * The MapAnalyzer class is the entry point for analyzing the map.
  * It reads input and output file paths from the command line arguments
@@ -8,10 +12,150 @@ public class MapAnalyzer {
      * The main method that starts the analysis process.
      *
      * @param args Command line arguments where args[0] is the input file path
-     *             and args[1] is the output file path.
+     *             and args[1] is the output file path. With "--batch" as args[0],
+     *             args[1] is the map file, args[2] is a file of start and end pairs
+     *             and args[3] is the output file path. Options of the form
+     *             "--route=bidirectional" may come before the paths to choose the
+     *             shortest route algorithm; "--landmarks=16" sets the number of
+     *             landmarks the ALT algorithm prepares for the map, and
+     *             "--landmarks-file=map.landmarks" loads them from that file, or computes
+     *             and writes them there if it belongs to another map; "--mst=kruskal"
+     *             chooses the algorithm that builds the Barely Connected Map. With
+     *             "--convert" as args[0], the text map args[1] is written as the
+     *             binary snapshot args[2], which can be given in place of a map later.
+     *             "--route=contraction_hierarchy" builds its hierarchy only in batch and
+     *             server mode, where many routes are asked, and when converting, where it
+     *             is saved in the snapshot; a single analysis runs Dijkstra's algorithm
+     *             unless the map is a snapshot with a hierarchy.
+     *             "--events=changes.txt" applies road changes to the map before the analysis;
+     *             "--cache=4096" sets how many routes are cached, 0 turning the cache off.
+     *             With "--table" as args[0], args[1] is the map file, args[2] is a file
+     *             of depot names and args[3] receives the distances between all depots,
+     *             as tab-separated text or, with "--table-format=binary", in binary.
+     *             "--alternatives=3" writes the three fastest routes that visit no point twice
+     *             instead of the analysis, or for every query in batch mode.
+     *             With "--serve" as args[0], args[1] is the map file, which is kept loaded
+     *             while route, MST and analysis requests are answered from standard input;
+     *             "--serve=/tmp/map.sock" answers them on that Unix domain socket instead.
+     *             "--metrics" also writes the search effort, the time of each phase, the
+     *             figures of the map and the hits and misses of the route cache as JSON to
+     *             the output file path followed by ".metrics.json"; server mode has no
+     *             output file, so it does not accept "--metrics".
+     *             "--store=/data/mapstore" keeps the roads, the compressed graph and the
+     *             point names of a very large map in files mapped from that directory
+     *             instead of on the heap, and uses a snapshot's graph straight from its file.
+     * @throws IllegalArgumentException If an option starting with "--" is unknown, or if
+     *             "--metrics" is given in server mode.
      */
     public static void main(String[] args) {
-        RouteFinder routeFinder = new RouteFinder(args[0], args[1]);
-        routeFinder.performAnalysis();
+        List<String> paths = new ArrayList<>();
+        RouteAlgorithm routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+        MstAlgorithm mstAlgorithm = MstAlgorithm.PRIM;
+        int landmarkCount = 8;
+        String landmarkFilePath = null;
+        boolean batch = false;
+        boolean convert = false;
+        boolean table = false;
+        boolean binaryTable = false;
+        String eventFilePath = null;
+        int routeCacheCapacity = -1;
+        int alternativeCount = 1;
+        boolean serve = false;
+        boolean collectMetrics = false;
+        String socketPath = null;
+        GraphStore store = GraphStore.HEAP;
+        for (String arg : args) {
+            if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.equals("--table")) {
+                table = true;
+            } else if (arg.equals("--table-format=binary")) {
+                binaryTable = true;
+            } else if (arg.equals("--convert")) {
+                convert = true;
+            } else if (arg.startsWith("--route=")) {
+                routeAlgorithm = RouteAlgorithm.valueOf(arg.substring("--route=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--mst=")) {
+                mstAlgorithm = MstAlgorithm.valueOf(arg.substring("--mst=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--events=")) {
+                eventFilePath = arg.substring("--events=".length());
+            } else if (arg.startsWith("--cache=")) {
+                routeCacheCapacity = Integer.parseInt(arg.substring("--cache=".length()));
+            } else if (arg.startsWith("--alternatives=")) {
+                alternativeCount = Integer.parseInt(arg.substring("--alternatives=".length()));
+            } else if (arg.equals("--metrics")) {
+                collectMetrics = true;
+            } else if (arg.equals("--serve")) {
+                serve = true;
+            } else if (arg.startsWith("--serve=")) {
+                serve = true;
+                socketPath = arg.substring("--serve=".length());
+            } else if (arg.startsWith("--landmarks-file=")) {
+                landmarkFilePath = arg.substring("--landmarks-file=".length());
+            } else if (arg.startsWith("--store=")) {
+                store = GraphStore.inDirectory(arg.substring("--store=".length()));
+            } else if (arg.startsWith("--landmarks=")) {
+                landmarkCount = Integer.parseInt(arg.substring("--landmarks=".length()));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                paths.add(arg);
+            }
+        }
+
+        if (collectMetrics && serve) {
+            throw new IllegalArgumentException("--metrics is not supported in server mode");
+        }
+        String outputPath = serve ? null : paths.get(batch || table ? 2 : 1);
+        RouteFinder routeFinder = new RouteFinder(paths.get(0), outputPath, store);
+        if (convert) {
+            if (routeAlgorithm == RouteAlgorithm.CONTRACTION_HIERARCHY) {
+                routeFinder.prepareContractionHierarchy();
+            }
+            routeFinder.saveSnapshot(paths.get(1));
+            return;
+        }
+        Metrics metrics = null;
+        if (collectMetrics) {
+            metrics = new Metrics();
+            routeFinder.setMetrics(metrics);
+        }
+        routeFinder.setRouteAlgorithm(routeAlgorithm);
+        routeFinder.setMstAlgorithm(mstAlgorithm);
+        routeFinder.setAlternativeCount(alternativeCount);
+        if (routeCacheCapacity >= 0) {
+            routeFinder.setRouteCacheCapacity(routeCacheCapacity);
+        }
+        if (eventFilePath != null) {
+            routeFinder.applyRoadEvents(eventFilePath);
+        }
+        if (routeAlgorithm == RouteAlgorithm.ALT) {
+            routeFinder.prepareLandmarks(landmarkCount, landmarkFilePath);
+        }
+        if (routeAlgorithm == RouteAlgorithm.CONTRACTION_HIERARCHY && (serve || batch)) {
+            routeFinder.prepareContractionHierarchy();
+        }
+        if (serve) {
+            RouteServer server = new RouteServer(routeFinder);
+            if (socketPath == null) {
+                server.serveStandardInput();
+            } else {
+                server.serveSocket(socketPath);
+            }
+        } else if (table) {
+            routeFinder.writeDistanceTable(paths.get(1), binaryTable);
+        } else if (batch) {
+            routeFinder.answerQueries(paths.get(1));
+        } else if (alternativeCount > 1) {
+            routeFinder.findAndPrintAlternativeRoutes();
+        } else {
+            routeFinder.performAnalysis();
+        }
+        if (metrics != null) {
+            metrics.setMap(routeFinder.getMapStatistics());
+            RouteCache routeCache = routeFinder.getRouteCache();
+            metrics.setRouteCache(routeCache.getHits(), routeCache.getMisses());
+            metrics.save(outputPath + ".metrics.json");
+        }
     }
 }
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MapLoader class reads a map file into a graph without holding its lines as Strings.
+ * The file is memory-mapped in windows and its UTF-8 bytes are split into lines and tab-separated
+ * fields in place. Point names are interned into the name dictionary of the graph straight from their
+ * bytes, and numbers are parsed straight from the bytes.
+ * <p>
+ * Lines end at "\n", "\r" or "\r\n", are trimmed of leading and trailing bytes up to the space
+ * character, and are skipped when empty, so the file is read exactly as FileInput.readFile reads it.
+ */
+class MapLoader {
+    private static final int INITIAL_WINDOW_SIZE = 1 << 26;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MAX_FIELDS = 4;
+
+    private final Graph graph;
+    private final int[] fieldStarts = new int[MAX_FIELDS + 1];
+    private final int[] fieldEnds = new int[MAX_FIELDS + 1];
+    private int lineCount;
+    private String firstLine;
+    private String start;
+    private String end;
+
+    /**
+     * Constructs a MapLoader that adds the roads it reads to the specified graph.
+     *
+     * @param graph The graph to fill, which must not contain any points yet.
+     */
+    MapLoader(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Reads the map file at the specified path. The first line holds the start and end points,
+     * every other line a road as start point, end point, distance and road ID.
+     *
+     * @param path The path of the map file.
+     * @throws IllegalArgumentException If the file cannot be read or has fewer than two lines.
+     */
+    void load(String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int windowSize = INITIAL_WINDOW_SIZE;
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    byte current = window.get(i);
+                    if (current == '\n' || current == '\r') {
+                        readLine(window, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (last) {
+                    readLine(window, lineStart, length);
+                    position = size;
+                } else if (lineStart == 0) {
+                    if (windowSize == MAX_WINDOW_SIZE) {
+                        throw new IOException("Line longer than " + MAX_WINDOW_SIZE + " bytes in " + path);
+                    }
+                    windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+                } else {
+                    position += lineStart;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalArgumentException("Invalid input file or format.");
+        }
+        if (lineCount < 2) {
+            throw new IllegalArgumentException("Invalid input file or format.");
+        }
+    }
+
+    /**
+     * Gets the starting point named on the first line.
+     *
+     * @return The name of the starting point.
+     */
+    String getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the ending point named on the first line.
+     *
+     * @return The name of the ending point.
+     */
+    String getEnd() {
+        return end;
+    }
+
+    /**
+     * Trims a line and reads it unless it is empty. The first line is only checked once a second
+     * line is found, as a file with a single line is rejected as a whole.
+     *
+     * @param buffer The buffer holding the line.
+     * @param from The index of the first byte of the line.
+     * @param to The index just past the last byte of the line.
+     * @throws CharacterCodingException If the line is not valid UTF-8.
+     */
+    private void readLine(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return;
+        }
+        lineCount++;
+        if (lineCount == 1) {
+            firstLine = decode(buffer, from, to);
+            return;
+        }
+        if (lineCount == 2) {
+            String[] startEnd = firstLine.split("\\t");
+            if (startEnd.length != 2) {
+                throw new IllegalArgumentException("First line must contain start and end points separated by a tab.");
+            }
+            start = startEnd[0];
+            end = startEnd[1];
+        }
+        readRoad(buffer, from, to);
+    }
+
+    /**
+     * Reads a road line and adds the road to the graph, skipping invalid lines and duplicate road IDs.
+     *
+     * @param buffer The buffer holding the line.
+     * @param from The index of the first byte of the trimmed line.
+     * @param to The index just past the last byte of the trimmed line.
+     * @throws CharacterCodingException If the line is not valid UTF-8.
+     */
+    private void readRoad(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        int fieldCount = 0;
+        fieldStarts[0] = from;
+        for (int i = from; i < to && fieldCount < MAX_FIELDS; i++) {
+            if (buffer.get(i) == '\t') {
+                fieldEnds[fieldCount++] = i;
+                fieldStarts[fieldCount] = i + 1;
+            }
+        }
+        fieldEnds[fieldCount++] = to;
+        if (fieldCount != MAX_FIELDS) {
+            System.out.println("Skipping invalid line: " + decode(buffer, from, to));
+            return;
+        }
+
+        int roadId = parseInt(buffer, fieldStarts[3], fieldEnds[3]);
+        if (graph.containsRoad(roadId)) {
+            System.out.println("Skipping road with duplicate ID " + roadId + ": " + decode(buffer, from, to));
+            return;
+        }
+        int distance = parseInt(buffer, fieldStarts[2], fieldEnds[2]);
+        int startPoint = point(buffer, fieldStarts[0], fieldEnds[0]);
+        int endPoint = point(buffer, fieldStarts[1], fieldEnds[1]);
+        graph.addRoad(startPoint, endPoint, distance, roadId);
+    }
+
+    /**
+     * Gets the graph ID of the point named by the specified bytes, registering the point if it is new.
+     *
+     * @param buffer The buffer holding the name.
+     * @param from The index of the first byte of the name.
+     * @param to The index just past the last byte of the name.
+     * @return The ID of the point in the graph.
+     * @throws CharacterCodingException If a new name is not valid UTF-8.
+     */
+    private int point(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        int known = graph.getPointCount();
+        int id = graph.internPoint(buffer, from, to);
+        if (id == known) {
+            decode(buffer, from, to);
+        }
+        return id;
+    }
+
+    /**
+     * Parses a decimal int from the specified bytes. Plain ASCII numbers are parsed in place;
+     * anything else is left to Integer.parseInt, which also reports invalid numbers.
+     *
+     * @param buffer The buffer holding the number.
+     * @param from The index of the first byte of the number.
+     * @param to The index just past the last byte of the number.
+     * @return The parsed number.
+     * @throws CharacterCodingException If the bytes are not valid UTF-8.
+     * @throws NumberFormatException If the bytes are not a valid int.
+     */
+    private static int parseInt(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        int i = from;
+        boolean negative = i < to && buffer.get(i) == '-';
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            i++;
+        }
+        if (i == to || to - i > 9) {
+            return Integer.parseInt(decode(buffer, from, to));
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(decode(buffer, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes the specified UTF-8 bytes, rejecting malformed input as Files.readAllLines does.
+     *
+     * @param buffer The buffer holding the bytes.
+     * @param from The index of the first byte.
+     * @param to The index just past the last byte.
+     * @return The decoded text.
+     * @throws CharacterCodingException If the bytes are not valid UTF-8.
+     */
+    private static String decode(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder().decode(buffer.slice(from, to - from)).toString();
+    }
+}
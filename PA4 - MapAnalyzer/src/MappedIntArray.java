@@ -0,0 +1,131 @@
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The MappedIntArray class is an IntArray kept in files mapped outside the Java heap. The values
+ * are split into chunks of a fixed number of ints, each mapped on its own, so an array is not
+ * limited by the 2 GB size of a single mapping, and an array grows by mapping more chunks instead
+ * of copying the ones it has. The file behind new chunks is deleted as soon as it is mapped, and
+ * its space is given back once the chunks are garbage collected; the operating system may page
+ * the chunks out in the meantime, and they do not count against -XX:MaxDirectMemorySize.
+ * <p>
+ * An array may also be a read-only view of an array in a snapshot file, whose last chunk is only
+ * as long as the values. Such an array is copied into new chunks when it grows.
+ */
+final class MappedIntArray extends IntArray {
+    static final int CHUNK_SHIFT = 20;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Path directory;
+    private final IntBuffer[] chunks;
+    private final int length;
+
+    /**
+     * Constructs a MappedIntArray over chunks that are already mapped.
+     *
+     * @param directory The directory new chunks are mapped from.
+     * @param chunks The chunks of the array, all but the last one CHUNK_SIZE ints long.
+     * @param length The number of values.
+     */
+    MappedIntArray(Path directory, IntBuffer[] chunks, int length) {
+        this.directory = directory;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Creates a MappedIntArray of zeros in a new file.
+     *
+     * @param directory The directory to create the file in.
+     * @param length The number of values.
+     * @return The new array.
+     */
+    static MappedIntArray create(Path directory, int length) {
+        IntBuffer[] chunks = new IntBuffer[chunkCount(length)];
+        mapChunks(directory, chunks, 0);
+        return new MappedIntArray(directory, chunks, length);
+    }
+
+    /**
+     * Gets the number of chunks that hold the specified number of values.
+     *
+     * @param length The number of values.
+     * @return The number of chunks.
+     */
+    static int chunkCount(int length) {
+        return (int) (((long) length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Maps the chunks from the specified index on from a new file in the specified directory.
+     *
+     * @param directory The directory to create the file in.
+     * @param chunks The chunks of an array, of which the ones before the index are mapped already.
+     * @param from The index of the first chunk to map.
+     */
+    private static void mapChunks(Path directory, IntBuffer[] chunks, int from) {
+        if (from == chunks.length) {
+            return;
+        }
+        MappedByteBuffer[] regions = GraphStore.mapNewFile(directory, chunks.length - from, (long) CHUNK_SIZE * Integer.BYTES);
+        for (int chunk = from; chunk < chunks.length; chunk++) {
+            chunks[chunk] = regions[chunk - from].order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+    }
+
+    /**
+     * Gets the number of values in the array.
+     *
+     * @return The length of the array.
+     */
+    @Override
+    int length() {
+        return length;
+    }
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @return The value.
+     */
+    @Override
+    int get(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    @Override
+    void set(int index, int value) {
+        chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Maps the chunks the longer array needs beyond the chunks of this one. A read-only view is
+     * copied into new chunks instead.
+     *
+     * @param length The length of the new array, at least the length of this one.
+     * @return The longer array.
+     */
+    @Override
+    IntArray grow(int length) {
+        IntBuffer[] grown = Arrays.copyOf(chunks, chunkCount(length));
+        boolean view = chunks.length > 0 && (chunks[0].isReadOnly() || chunks[chunks.length - 1].capacity() < CHUNK_SIZE);
+        mapChunks(directory, grown, view ? 0 : chunks.length);
+        if (view) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                grown[chunk].put(0, chunks[chunk], 0, chunks[chunk].limit());
+            }
+        }
+        return new MappedIntArray(directory, grown, length);
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Metrics class collects how much work a run did: the time spent in each phase, and the effort
+ * of the shortest route searches and of the spanning tree builds. Searches count their work in
+ * plain fields all the time, which costs next to nothing; only when a Metrics object is attached
+ * are the counts handed over to it after every search. The figures of the map and the hit and miss
+ * counts of the route cache are added at the end of the run. The collected metrics are written as JSON.
+ */
+class Metrics {
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final Counters routeSearches = new Counters();
+    private final Counters spanningTrees = new Counters();
+    private String map = "{}";
+    private long routeCacheHits;
+    private long routeCacheMisses;
+
+    /**
+     * The Counters class adds up the effort of searches of one kind.
+     */
+    static class Counters {
+        private long searches;
+        private long settled;
+        private long relaxed;
+        private long pushes;
+        private long pops;
+        private long stalePops;
+        private long peakQueueSize;
+
+        /**
+         * Adds the effort of one search.
+         *
+         * @param settled The number of points settled.
+         * @param relaxed The number of arcs looked at from settled points.
+         * @param pushes The number of points or arcs put into the queue, or moved up in it.
+         * @param pops The number of entries taken from the queue.
+         * @param stalePops The number of entries taken from the queue that were out of date.
+         * @param peakQueueSize The largest number of entries in the queue at once.
+         */
+        synchronized void add(long settled, long relaxed, long pushes, long pops, long stalePops, long peakQueueSize) {
+            this.searches++;
+            this.settled += settled;
+            this.relaxed += relaxed;
+            this.pushes += pushes;
+            this.pops += pops;
+            this.stalePops += stalePops;
+            this.peakQueueSize = Math.max(this.peakQueueSize, peakQueueSize);
+        }
+
+        /**
+         * Formats the counters as a JSON object.
+         *
+         * @return The JSON object.
+         */
+        synchronized String toJson() {
+            return "{\"searches\": " + searches + ", \"settled\": " + settled + ", \"relaxed\": " + relaxed
+                    + ", \"pushes\": " + pushes + ", \"pops\": " + pops + ", \"stalePops\": " + stalePops
+                    + ", \"peakQueueSize\": " + peakQueueSize + "}";
+        }
+    }
+
+    /**
+     * Gets the counters of the shortest route searches.
+     *
+     * @return The route search counters.
+     */
+    Counters getRouteSearches() {
+        return routeSearches;
+    }
+
+    /**
+     * Gets the counters of the spanning tree builds.
+     *
+     * @return The spanning tree counters.
+     */
+    Counters getSpanningTrees() {
+        return spanningTrees;
+    }
+
+    /**
+     * Adds time to a phase, creating the phase the first time.
+     *
+     * @param phase The name of the phase.
+     * @param nanos The time spent, in nanoseconds.
+     */
+    synchronized void addPhase(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Records the figures of the map: its points, roads and material, its connected components,
+     * and how many points have each degree, leaving out degrees no point has.
+     *
+     * @param statistics The statistics of the graph of the map.
+     */
+    synchronized void setMap(GraphStatistics statistics) {
+        StringBuilder sb = new StringBuilder("{\"points\": ").append(statistics.getPointCount())
+                .append(", \"roads\": ").append(statistics.getRoadCount())
+                .append(", \"material\": ").append(statistics.getTotalMaterial())
+                .append(", \"components\": ").append(statistics.getComponentCount())
+                .append(", \"maxDegree\": ").append(statistics.getMaxDegree())
+                .append(", \"degrees\": {");
+        String separator = "";
+        for (int degree = 0; degree <= statistics.getMaxDegree(); degree++) {
+            if (statistics.getDegreeCount(degree) > 0) {
+                sb.append(separator).append("\"").append(degree).append("\": ").append(statistics.getDegreeCount(degree));
+                separator = ", ";
+            }
+        }
+        map = sb.append("}}").toString();
+    }
+
+    /**
+     * Records how often the route cache was asked and how often it had the route.
+     *
+     * @param hits The number of lookups that found a cached route.
+     * @param misses The number of lookups that found no cached route.
+     */
+    synchronized void setRouteCache(long hits, long misses) {
+        this.routeCacheHits = hits;
+        this.routeCacheMisses = misses;
+    }
+
+    /**
+     * Formats the metrics as a JSON object, with phase times in milliseconds.
+     *
+     * @return The JSON text.
+     */
+    synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"phasesMillis\": {");
+        String separator = "";
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            sb.append(separator).append("\"").append(phase.getKey()).append("\": ")
+                    .append(String.format(Locale.US, "%.3f", phase.getValue() / 1e6));
+            separator = ", ";
+        }
+        sb.append("},\n  \"map\": ").append(map)
+                .append(",\n  \"routeSearches\": ").append(routeSearches.toJson())
+                .append(",\n  \"spanningTrees\": ").append(spanningTrees.toJson())
+                .append(",\n  \"routeCache\": {\"hits\": ").append(routeCacheHits)
+                .append(", \"misses\": ").append(routeCacheMisses).append("}")
+                .append("\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes the metrics as JSON to a file, replacing the file if it exists.
+     *
+     * @param path The path of the file to write.
+     */
+    void save(String path) {
+        FileOutput.writeToFile(path, toJson(), false, false);
+    }
+}
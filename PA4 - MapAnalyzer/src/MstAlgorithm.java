@@ -0,0 +1,19 @@
+/**
+ * The MstAlgorithm enum lists the ways the graph can build the barely connected map of a point.
+ * Roads are compared by distance, then by road ID, so every algorithm builds the same tree.
+ */
+public enum MstAlgorithm {
+    /**
+     * Prim's algorithm growing the tree from the starting point.
+     */
+    PRIM,
+    /**
+     * Kruskal's algorithm over the roads sorted once for the graph, keeping the tree of the starting point.
+     */
+    KRUSKAL,
+    /**
+     * Boruvka's algorithm, finding the shortest road leaving every component in parallel,
+     * keeping the tree of the starting point.
+     */
+    BORUVKA
+}
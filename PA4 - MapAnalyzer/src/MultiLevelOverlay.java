@@ -0,0 +1,666 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The MultiLevelOverlay class partitions the points of a graph into cells on several levels and keeps,
+ * for every cell, the shortest distances inside the cell between its boundary points, those with a
+ * road leaving the cell. The cells come from recursive bisection: level 1 cells have at most CELL_SIZE
+ * points, every level above allows FANOUT times as many, and levels are added until few cells are left.
+ * Levels whose cells are mostly boundary points are dropped, since crossing them is no shorter than
+ * crossing their roads.
+ * <p>
+ * The layout of the cells is computed once. Customizing only recomputes the boundary distances, one
+ * cell at a time in parallel and level by level, each level from the distances of the level below,
+ * so road distances can change without building the overlay again. A search between two points uses
+ * the roads of their own level 1 cells, and for any other point the distances of the highest level
+ * at which its cell holds neither of the two.
+ */
+class MultiLevelOverlay {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int CELL_SIZE = 256;
+    private static final int FANOUT = 8;
+    private static final int TOP_CELLS = 64;
+    private static final int MAX_LEVELS = 8;
+
+    private final int levelCount;
+    private final int[][] cells;
+    private final int[] cellCounts;
+    private final int[] cellPointStarts;
+    private final int[] cellPoints;
+    private final int[] cellIndexes;
+    private final int[][] childStarts;
+    private final int[][] children;
+    private final int[][] childOffsets;
+    private final int[][] boundaryStarts;
+    private final int[][] boundaryPoints;
+    private final int[][] boundaryIndexes;
+    private final int[][] cliqueStarts;
+    private final int[][] cliques;
+    private final int[][][] nodes;
+    private final int maxNodeCount;
+    private CsrGraph graph;
+
+    /**
+     * Constructs a MultiLevelOverlay for the specified graph: partitions its points into cells and
+     * customizes the overlay with the current road distances.
+     *
+     * @param graph The compressed graph to build the overlay for.
+     */
+    MultiLevelOverlay(CsrGraph graph) {
+        int pointCount = graph.getPointCount();
+        int[] offsets = new int[pointCount + 1];
+        int[] targets = new int[graph.getArcCount()];
+        for (int point = 0; point < pointCount; point++) {
+            offsets[point + 1] = graph.endArc(point);
+            for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                targets[arc] = graph.target(arc);
+            }
+        }
+
+        int levels = 1;
+        while (levels < MAX_LEVELS && pointCount > cellLimit(levels) * TOP_CELLS) {
+            levels++;
+        }
+        int[][] levelCells = new int[levels + 1][pointCount];
+        int[] levelCellCounts = new int[levels + 1];
+        bisect(offsets, targets, levelCells, levelCellCounts);
+        levels = countUsefulLevels(offsets, targets, levelCells, levels);
+
+        this.levelCount = levels;
+        this.cells = levelCells;
+        this.cellCounts = levelCellCounts;
+        this.cellPointStarts = new int[cellCounts[1] + 1];
+        this.cellPoints = new int[pointCount];
+        this.cellIndexes = new int[pointCount];
+        for (int point = 0; point < pointCount; point++) {
+            cellPointStarts[cells[1][point] + 1]++;
+        }
+        for (int cell = 0; cell < cellCounts[1]; cell++) {
+            cellPointStarts[cell + 1] += cellPointStarts[cell];
+        }
+        int[] fill = Arrays.copyOf(cellPointStarts, cellCounts[1]);
+        for (int point = 0; point < pointCount; point++) {
+            cellIndexes[point] = fill[cells[1][point]] - cellPointStarts[cells[1][point]];
+            cellPoints[fill[cells[1][point]]++] = point;
+        }
+
+        this.boundaryStarts = new int[levels + 1][];
+        this.boundaryPoints = new int[levels + 1][];
+        this.boundaryIndexes = new int[levels + 1][];
+        this.cliqueStarts = new int[levels + 1][];
+        this.cliques = new int[levels + 1][];
+        for (int level = 1; level <= levels; level++) {
+            findBoundary(level, offsets, targets);
+        }
+        this.childStarts = new int[levels + 1][];
+        this.children = new int[levels + 1][];
+        this.childOffsets = new int[levels + 1][];
+        for (int level = 2; level <= levels; level++) {
+            findChildren(level);
+        }
+        this.nodes = new int[levels + 1][][];
+        int maxNodes = 0;
+        for (int level = 1; level <= levels; level++) {
+            nodes[level] = new int[cellCounts[level]][];
+            for (int cell = 0; cell < cellCounts[level]; cell++) {
+                nodes[level][cell] = cellNodes(level, cell);
+                maxNodes = Math.max(maxNodes, nodes[level][cell].length);
+            }
+        }
+        this.maxNodeCount = maxNodes;
+        customize(graph);
+    }
+
+    /**
+     * Gets the largest number of points in a cell of a level.
+     *
+     * @param level The level, at least 1.
+     * @return The largest cell size of the level.
+     */
+    private static long cellLimit(int level) {
+        long limit = CELL_SIZE;
+        for (int i = 1; i < level; i++) {
+            limit *= FANOUT;
+        }
+        return limit;
+    }
+
+    /**
+     * Counts the levels that shorten searches. Crossing a cell of a level takes a step per boundary
+     * point, so a level only pays off if its cells have at most half as many boundary points as there
+     * are points to step over on the level below. On maps without short cuts between their parts,
+     * such as maps with a few very busy points, almost every point lies on a boundary; such a level
+     * is dropped together with the levels above it, down to no level at all.
+     *
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     * @param levelCells The cell of every point on every level.
+     * @param levels The number of levels the points were partitioned into.
+     * @return The number of levels to keep.
+     */
+    private static int countUsefulLevels(int[] offsets, int[] targets, int[][] levelCells, int levels) {
+        int pointCount = offsets.length - 1;
+        int below = pointCount;
+        for (int level = 1; level <= levels; level++) {
+            int[] pointCells = levelCells[level];
+            int boundaryCount = 0;
+            for (int point = 0; point < pointCount; point++) {
+                for (int arc = offsets[point]; arc < offsets[point + 1]; arc++) {
+                    if (pointCells[targets[arc]] != pointCells[point]) {
+                        boundaryCount++;
+                        break;
+                    }
+                }
+            }
+            if (boundaryCount > below / 2) {
+                return level - 1;
+            }
+            below = boundaryCount;
+        }
+        return levels;
+    }
+
+    /**
+     * Partitions the points by recursive bisection: the points of a part are ordered breadth-first
+     * from a point far away from the others, and the order is cut in half. Breadth-first layers are
+     * narrow, so the two halves touch along a short front. A part becomes a cell of a level when it
+     * is small enough for the level and its parent part was not, so the cells of a level are nested
+     * in the cells of the level above.
+     *
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     * @param levelCells The arrays the cell of every point on every level is stored in.
+     * @param levelCellCounts The array the number of cells of every level is stored in.
+     */
+    private static void bisect(int[] offsets, int[] targets, int[][] levelCells, int[] levelCellCounts) {
+        int pointCount = offsets.length - 1;
+        int levels = levelCells.length - 1;
+        int[] order = new int[pointCount];
+        for (int point = 0; point < pointCount; point++) {
+            order[point] = point;
+        }
+        int[] parts = new int[pointCount];
+        int[][] marks = new int[2][pointCount];
+        int[] queue = new int[pointCount];
+        int partCount = 1;
+        IntList pending = new IntList();
+        pending.add(0);
+        pending.add(pointCount);
+        pending.add(Integer.MAX_VALUE);
+        while (pending.size() > 0) {
+            int parentSize = pending.removeLast();
+            int hi = pending.removeLast();
+            int lo = pending.removeLast();
+            int size = hi - lo;
+            for (int level = 1; level <= levels; level++) {
+                if (size <= cellLimit(level) && parentSize > cellLimit(level)) {
+                    int cell = levelCellCounts[level]++;
+                    for (int i = lo; i < hi; i++) {
+                        levelCells[level][order[i]] = cell;
+                    }
+                }
+            }
+            if (size <= CELL_SIZE) {
+                continue;
+            }
+
+            orderBreadthFirst(offsets, targets, order, lo, hi, parts, marks, queue, partCount);
+            int mid = lo + size / 2;
+            int left = partCount++;
+            int right = partCount++;
+            for (int i = lo; i < hi; i++) {
+                parts[order[i]] = i < mid ? left : right;
+            }
+            pending.add(lo);
+            pending.add(mid);
+            pending.add(size);
+            pending.add(mid);
+            pending.add(hi);
+            pending.add(size);
+        }
+    }
+
+    /**
+     * Orders the points of a part breadth-first, one connected piece after another, each from a
+     * point as far as possible from the first point of the piece.
+     *
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     * @param order The points, where the points of the part are reordered.
+     * @param lo The index of the first point of the part.
+     * @param hi The index after the last point of the part.
+     * @param parts The part of every point.
+     * @param marks Two arrays of marks, for the ordering and for finding far points.
+     * @param queue An array at least as long as the part.
+     * @param mark A mark not used in the marks yet.
+     */
+    private static void orderBreadthFirst(int[] offsets, int[] targets, int[] order, int lo, int hi, int[] parts,
+                                          int[][] marks, int[] queue, int mark) {
+        int part = parts[order[lo]];
+        int ordered = 0;
+        for (int i = lo; i < hi; i++) {
+            int seed = order[i];
+            if (marks[0][seed] == mark) {
+                continue;
+            }
+            int tail = breadthFirst(offsets, targets, seed, parts, part, marks[1], mark, queue, ordered);
+            int far = queue[tail - 1];
+            breadthFirst(offsets, targets, far, parts, part, marks[0], mark, queue, ordered);
+            ordered = tail;
+        }
+        System.arraycopy(queue, 0, order, lo, hi - lo);
+    }
+
+    /**
+     * Visits the points of a part reachable from a point in breadth-first order.
+     *
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     * @param start The ID of the point to start at.
+     * @param parts The part of every point.
+     * @param part The part to stay in.
+     * @param marks The marks of the visited points.
+     * @param mark The mark of this visit.
+     * @param queue The array the visited points are written to.
+     * @param head The index in the queue to write the first point at.
+     * @return The index after the last visited point in the queue.
+     */
+    private static int breadthFirst(int[] offsets, int[] targets, int start, int[] parts, int part,
+                                    int[] marks, int mark, int[] queue, int head) {
+        int tail = head;
+        marks[start] = mark;
+        queue[tail++] = start;
+        while (head < tail) {
+            int point = queue[head++];
+            for (int arc = offsets[point]; arc < offsets[point + 1]; arc++) {
+                int next = targets[arc];
+                if (marks[next] != mark && parts[next] == part) {
+                    marks[next] = mark;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Finds the boundary points of every cell of a level, those with an arc to another cell, and
+     * lays out the boundary distance matrices of the cells.
+     *
+     * @param level The level.
+     * @param offsets The index of the first arc of every point, followed by the number of arcs.
+     * @param targets The point every arc leads to.
+     */
+    private void findBoundary(int level, int[] offsets, int[] targets) {
+        int pointCount = cellIndexes.length;
+        int cellCount = cellCounts[level];
+        int[] pointCells = cells[level];
+        int[] indexes = new int[pointCount];
+        int[] starts = new int[cellCount + 1];
+        for (int point = 0; point < pointCount; point++) {
+            indexes[point] = -1;
+            for (int arc = offsets[point]; arc < offsets[point + 1]; arc++) {
+                if (pointCells[targets[arc]] != pointCells[point]) {
+                    indexes[point] = starts[pointCells[point] + 1]++;
+                    break;
+                }
+            }
+        }
+        long cliqueSize = 0;
+        int[] matrixStarts = new int[cellCount + 1];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int size = starts[cell + 1];
+            cliqueSize += (long) size * size;
+            if (cliqueSize > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("The overlay of the graph is too large.");
+            }
+            matrixStarts[cell + 1] = (int) cliqueSize;
+            starts[cell + 1] += starts[cell];
+        }
+        int[] points = new int[starts[cellCount]];
+        for (int point = 0; point < pointCount; point++) {
+            if (indexes[point] != -1) {
+                points[starts[pointCells[point]] + indexes[point]] = point;
+            }
+        }
+        boundaryStarts[level] = starts;
+        boundaryPoints[level] = points;
+        boundaryIndexes[level] = indexes;
+        cliqueStarts[level] = matrixStarts;
+        cliques[level] = new int[(int) cliqueSize];
+    }
+
+    /**
+     * Lists the cells of the level below every cell of a level, and where the boundary points of
+     * each of them start among the nodes the cell is customized on.
+     *
+     * @param level The level, at least 2.
+     */
+    private void findChildren(int level) {
+        int childCount = cellCounts[level - 1];
+        int[] parents = new int[childCount];
+        for (int point = 0; point < cellIndexes.length; point++) {
+            parents[cells[level - 1][point]] = cells[level][point];
+        }
+        int[] starts = new int[cellCounts[level] + 1];
+        for (int child = 0; child < childCount; child++) {
+            starts[parents[child] + 1]++;
+        }
+        for (int cell = 0; cell < cellCounts[level]; cell++) {
+            starts[cell + 1] += starts[cell];
+        }
+        int[] list = new int[childCount];
+        int[] offsets = new int[childCount];
+        int[] fill = Arrays.copyOf(starts, cellCounts[level]);
+        int[] nodeCounts = new int[cellCounts[level]];
+        int[] belowStarts = boundaryStarts[level - 1];
+        for (int child = 0; child < childCount; child++) {
+            int parent = parents[child];
+            list[fill[parent]++] = child;
+            offsets[child] = nodeCounts[parent];
+            nodeCounts[parent] += belowStarts[child + 1] - belowStarts[child];
+        }
+        childStarts[level] = starts;
+        children[level] = list;
+        childOffsets[level] = offsets;
+    }
+
+    /**
+     * Recomputes the boundary distances of every cell from the road distances of a graph with the
+     * same layout, in parallel over the cells of each level.
+     *
+     * @param newGraph The graph with the new road distances.
+     * @return True if the overlay was customized, false if the graph has another layout and the overlay must be built again.
+     */
+    synchronized boolean customize(CsrGraph newGraph) {
+        if (newGraph == graph) {
+            return true;
+        }
+        if (graph != null && !graph.hasSameLayout(newGraph)) {
+            return false;
+        }
+        graph = newGraph;
+        for (int level = 1; level <= levelCount; level++) {
+            int customizedLevel = level;
+            IntStream.range(0, cellCounts[level]).parallel().forEach(cell -> customizeCell(customizedLevel, cell));
+        }
+        return true;
+    }
+
+    /**
+     * Recomputes the boundary distances of one cell with a Dijkstra search from every boundary point.
+     *
+     * @param level The level of the cell.
+     * @param cell The cell.
+     */
+    private void customizeCell(int level, int cell) {
+        int boundaryStart = boundaryStarts[level][cell];
+        int boundaryCount = boundaryStarts[level][cell + 1] - boundaryStart;
+        if (boundaryCount == 0) {
+            return;
+        }
+        int[] nodes = this.nodes[level][cell];
+        int[] distances = new int[nodes.length];
+        IndexedHeap queue = new IndexedHeap(nodes.length);
+        for (int from = 0; from < boundaryCount; from++) {
+            Arrays.fill(distances, UNREACHABLE);
+            relax(queue, distances, localIndex(level, boundaryPoints[level][boundaryStart + from]), 0);
+            searchCell(level, cell, nodes, distances, queue);
+            int row = cliqueStarts[level][cell] + from * boundaryCount;
+            for (int to = 0; to < boundaryCount; to++) {
+                cliques[level][row + to] = distances[localIndex(level, boundaryPoints[level][boundaryStart + to])];
+            }
+        }
+    }
+
+    /**
+     * Extends the distances from a point outside a cell into the cell: from the distances of its
+     * boundary points, finds the distances of all of its points on level 1, and of the boundary
+     * points of its cells on higher levels.
+     *
+     * @param level The level of the cell.
+     * @param cell The cell.
+     * @param distances The distances of the points, read at the boundary points of the cell and written at the points found.
+     * @param local An array of at least getMaxNodeCount() values the cell is searched with.
+     * @param queue An empty queue for at least getMaxNodeCount() points the cell is searched with.
+     * @return The number of points found.
+     */
+    int extendDistances(int level, int cell, int[] distances, int[] local, IndexedHeap queue) {
+        int[] nodes = this.nodes[level][cell];
+        Arrays.fill(local, 0, nodes.length, UNREACHABLE);
+        for (int index = boundaryStarts[level][cell]; index < boundaryStarts[level][cell + 1]; index++) {
+            int point = boundaryPoints[level][index];
+            if (distances[point] != UNREACHABLE) {
+                relax(queue, local, localIndex(level, point), distances[point]);
+            }
+        }
+        searchCell(level, cell, nodes, local, queue);
+        for (int node = 0; node < nodes.length; node++) {
+            distances[nodes[node]] = local[node];
+        }
+        return nodes.length;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm inside a cell from the nodes already in the queue, over the roads
+     * inside the cell on level 1, and over the boundary distances of its cells and the roads between
+     * them on higher levels.
+     *
+     * @param level The level of the cell.
+     * @param cell The cell.
+     * @param nodes The points the cell is searched on, by local index.
+     * @param distances The distances of the nodes by local index.
+     * @param queue The queue of the search, holding the nodes to start from.
+     */
+    private void searchCell(int level, int cell, int[] nodes, int[] distances, IndexedHeap queue) {
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int point = nodes[node];
+            int distance = distances[node];
+            if (level == 1) {
+                for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                    int next = graph.target(arc);
+                    if (cells[1][next] == cell) {
+                        relax(queue, distances, cellIndexes[next], distance + graph.weight(arc));
+                    }
+                }
+                continue;
+            }
+            int child = cells[level - 1][point];
+            int childStart = boundaryStarts[level - 1][child];
+            int childCount = boundaryStarts[level - 1][child + 1] - childStart;
+            int row = cliqueStarts[level - 1][child] + boundaryIndexes[level - 1][point] * childCount;
+            for (int to = 0; to < childCount; to++) {
+                if (cliques[level - 1][row + to] != UNREACHABLE) {
+                    relax(queue, distances, childOffsets[level][child] + to, distance + cliques[level - 1][row + to]);
+                }
+            }
+            for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+                int next = graph.target(arc);
+                if (cells[level][next] == cell && cells[level - 1][next] != child) {
+                    relax(queue, distances, localIndex(level, next), distance + graph.weight(arc));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowers the distance of a node of a cell search if the new distance is smaller.
+     *
+     * @param queue The queue of the search.
+     * @param distances The distances of the nodes.
+     * @param node The node.
+     * @param distance The new distance.
+     */
+    private static void relax(IndexedHeap queue, int[] distances, int node, int distance) {
+        if (distance < distances[node]) {
+            distances[node] = distance;
+            queue.push(node, ((long) distance << 32) | node);
+        }
+    }
+
+    /**
+     * Gets the points a cell is customized on: all of its points on level 1, and the boundary points
+     * of its cells on higher levels.
+     *
+     * @param level The level of the cell.
+     * @param cell The cell.
+     * @return The points, in the order of their local indexes.
+     */
+    private int[] cellNodes(int level, int cell) {
+        if (level == 1) {
+            return Arrays.copyOfRange(cellPoints, cellPointStarts[cell], cellPointStarts[cell + 1]);
+        }
+        IntList nodes = new IntList();
+        for (int i = childStarts[level][cell]; i < childStarts[level][cell + 1]; i++) {
+            int child = children[level][i];
+            for (int j = boundaryStarts[level - 1][child]; j < boundaryStarts[level - 1][child + 1]; j++) {
+                nodes.add(boundaryPoints[level - 1][j]);
+            }
+        }
+        int[] points = new int[nodes.size()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = nodes.get(i);
+        }
+        return points;
+    }
+
+    /**
+     * Gets the index of a point among the points its cell is customized on.
+     *
+     * @param level The level of the cell.
+     * @param point The ID of the point, a boundary point of a cell of the level below on higher levels.
+     * @return The local index of the point.
+     */
+    private int localIndex(int level, int point) {
+        if (level == 1) {
+            return cellIndexes[point];
+        }
+        return childOffsets[level][cells[level - 1][point]] + boundaryIndexes[level - 1][point];
+    }
+
+    /**
+     * Gets the graph the overlay was last customized with.
+     *
+     * @return The compressed graph.
+     */
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the level a search between two points uses at a point: the highest level at which the
+     * cell of the point holds neither end, or 0 if it shares a level 1 cell with either end.
+     *
+     * @param source The ID of the starting point of the search.
+     * @param target The ID of the ending point of the search.
+     * @param point The ID of the point.
+     * @return The level of the point for the search.
+     */
+    int levelOf(int source, int target, int point) {
+        for (int level = levelCount; level >= 1; level--) {
+            int cell = cells[level][point];
+            if (cell != cells[level][source] && cell != cells[level][target]) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the largest number of points any cell is searched on.
+     *
+     * @return The largest number of points of a cell search.
+     */
+    int getMaxNodeCount() {
+        return maxNodeCount;
+    }
+
+    /**
+     * Gets the number of levels of the overlay.
+     *
+     * @return The number of levels.
+     */
+    int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Gets the number of cells on a level.
+     *
+     * @param level The level, at least 1.
+     * @return The number of cells.
+     */
+    int getCellCount(int level) {
+        return cellCounts[level];
+    }
+
+    /**
+     * Gets the cell of a point on a level.
+     *
+     * @param level The level, at least 1.
+     * @param point The ID of the point.
+     * @return The cell of the point.
+     */
+    int getCell(int level, int point) {
+        return cells[level][point];
+    }
+
+    /**
+     * Gets the index of the first boundary point of the cell of a point.
+     *
+     * @param level The level, at least 1.
+     * @param point The ID of a point.
+     * @return The index of the first boundary point of its cell.
+     */
+    int firstBoundary(int level, int point) {
+        return boundaryStarts[level][cells[level][point]];
+    }
+
+    /**
+     * Gets the index after the last boundary point of the cell of a point.
+     *
+     * @param level The level, at least 1.
+     * @param point The ID of a point.
+     * @return The index after the last boundary point of its cell.
+     */
+    int endBoundary(int level, int point) {
+        return boundaryStarts[level][cells[level][point] + 1];
+    }
+
+    /**
+     * Gets a boundary point of a level by its index.
+     *
+     * @param level The level, at least 1.
+     * @param index The index of the boundary point.
+     * @return The ID of the point.
+     */
+    int boundaryPoint(int level, int index) {
+        return boundaryPoints[level][index];
+    }
+
+    /**
+     * Gets the index of the first boundary distance from a boundary point of a level: the
+     * distances to the boundary points of its cell follow in the order of their indexes.
+     *
+     * @param level The level, at least 1.
+     * @param point The ID of the boundary point to start at.
+     * @return The index of the distance to the first boundary point of its cell.
+     */
+    int firstBoundaryDistance(int level, int point) {
+        int cell = cells[level][point];
+        int count = boundaryStarts[level][cell + 1] - boundaryStarts[level][cell];
+        return cliqueStarts[level][cell] + boundaryIndexes[level][point] * count;
+    }
+
+    /**
+     * Gets the shortest distance inside their cell between two boundary points of a level.
+     *
+     * @param level The level, at least 1.
+     * @param index The index of the distance.
+     * @return The distance, or UNREACHABLE if no route inside the cell joins the points.
+     */
+    int boundaryDistance(int level, int index) {
+        return cliques[level][index];
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The NameDictionary class gives every distinct byte sequence an int ID in the order the sequences
+ * are first seen. The bytes are copied once into a shared arena and looked up through an
+ * open-addressing hash table, so a name that was seen before can be found straight from the
+ * bytes of the input without building a String. Names are kept as UTF-8 and only decoded into a
+ * String when one is asked for, so a dictionary of many short names takes a few bytes per name
+ * plus an offset and a hash, instead of a String object, its array and a hash map entry. The
+ * arena comes from a GraphStore: a heap buffer by default, or a file mapped outside the heap, in
+ * which case a dictionary read from a snapshot uses the mapped snapshot itself. The offsets,
+ * hashes and hash table stay on the heap.
+ */
+class NameDictionary {
+    private static final int EMPTY = -1;
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+    private final GraphStore store;
+    private ByteBuffer arena;
+    private int arenaSize;
+    private int[] offsets = new int[17];
+    private int[] hashes = new int[16];
+    private int count;
+    private int[] table = new int[32];
+
+    /**
+     * Constructs an empty NameDictionary that keeps its names on the heap.
+     */
+    public NameDictionary() {
+        this(GraphStore.HEAP);
+    }
+
+    /**
+     * Constructs an empty NameDictionary that keeps its names in the specified store.
+     *
+     * @param store The store the bytes of the names are kept in.
+     */
+    NameDictionary(GraphStore store) {
+        this.store = store;
+        this.arena = store.allocateBytes(1024);
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * Gets the number of names in the dictionary.
+     *
+     * @return The number of names.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the ID of the name stored in the specified bytes, adding the name if it is new.
+     *
+     * @param buffer The buffer holding the name.
+     * @param from The index of the first byte of the name.
+     * @param to The index just past the last byte of the name.
+     * @return The ID of the name; a new name gets the ID equal to the previous size of the dictionary.
+     */
+    public int intern(ByteBuffer buffer, int from, int to) {
+        int hash = hash(buffer, from, to);
+        int slot = findSlot(buffer, from, to, hash);
+        if (table[slot] != EMPTY) {
+            return table[slot];
+        }
+        return add(buffer, from, to, hash, slot);
+    }
+
+    /**
+     * Gets the ID of the specified name, adding the name if it is new.
+     *
+     * @param name The name.
+     * @return The ID of the name; a new name gets the ID equal to the previous size of the dictionary.
+     */
+    public int intern(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Gets the ID of the specified name without adding it.
+     *
+     * @param name The name.
+     * @return The ID of the name, or -1 if it is not in the dictionary.
+     */
+    public int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return table[findSlot(buffer, 0, bytes.length, hash(buffer, 0, bytes.length))];
+    }
+
+    /**
+     * Decodes the name with the specified ID.
+     *
+     * @param id The ID of the name.
+     * @return The name.
+     */
+    public String getName(int id) {
+        byte[] bytes = new byte[offsets[id + 1] - offsets[id]];
+        arena.get(offsets[id], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the UTF-8 bytes of the name with the specified ID, without copying them.
+     *
+     * @param id The ID of the name.
+     * @return A read-only buffer over the bytes of the name.
+     */
+    public ByteBuffer getBytes(int id) {
+        return arena.slice(offsets[id], offsets[id + 1] - offsets[id]).asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a dictionary with the same names and IDs as this one, which can then grow on its own.
+     *
+     * @return The copy of the dictionary.
+     */
+    public NameDictionary copy() {
+        NameDictionary copy = new NameDictionary(store);
+        copy.arena = store.allocateBytes(Math.max(arena.capacity(), 1)).put(0, arena, 0, arenaSize);
+        copy.arenaSize = arenaSize;
+        copy.offsets = Arrays.copyOf(offsets, offsets.length);
+        copy.hashes = Arrays.copyOf(hashes, hashes.length);
+        copy.count = count;
+        copy.table = Arrays.copyOf(table, table.length);
+        return copy;
+    }
+
+    /**
+     * Writes the names to a snapshot as the offset of every name followed by their bytes.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        GraphSnapshot.writeInts(out, offsets, count + 1);
+        byte[] bytes = new byte[arenaSize];
+        arena.get(0, bytes);
+        GraphSnapshot.writeBytes(out, bytes);
+    }
+
+    /**
+     * Reads names written by writeTo. In a store on a directory the bytes of the names are not
+     * copied: the dictionary reads them from their mapping of the file, which must not change
+     * afterwards, until a new name is added.
+     *
+     * @param in The reader of the snapshot, positioned at the names.
+     * @param store The store the bytes of the names are kept in.
+     * @return The dictionary holding the names, with the IDs they were written with.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    static NameDictionary readFrom(SnapshotReader in, GraphStore store) throws IOException {
+        NameDictionary dictionary = new NameDictionary(store);
+        dictionary.offsets = in.readInts();
+        dictionary.arena = store.viewBytes(in);
+        dictionary.arenaSize = dictionary.arena.capacity();
+        dictionary.count = dictionary.offsets.length - 1;
+        dictionary.hashes = new int[Math.max(dictionary.count, 1)];
+        for (int id = 0; id < dictionary.count; id++) {
+            dictionary.hashes[id] = hash(dictionary.arena, dictionary.offsets[id], dictionary.offsets[id + 1]);
+        }
+        dictionary.offsets = Arrays.copyOf(dictionary.offsets, dictionary.hashes.length + 1);
+        while (dictionary.count * 2 > dictionary.table.length) {
+            dictionary.table = new int[dictionary.table.length * 2];
+        }
+        dictionary.rehash(dictionary.table.length);
+        return dictionary;
+    }
+
+    /**
+     * Finds the table slot of the name stored in the specified bytes, or the free slot it would take.
+     *
+     * @param buffer The buffer holding the name.
+     * @param from The index of the first byte of the name.
+     * @param to The index just past the last byte of the name.
+     * @param hash The hash of the name.
+     * @return The slot holding the ID of the name, or the free slot where the probing stopped.
+     */
+    private int findSlot(ByteBuffer buffer, int from, int to, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (hashes[id] == hash && matches(id, buffer, from, to)) {
+                break;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Copies a new name into the arena and records it in the hash table.
+     *
+     * @param buffer The buffer holding the name.
+     * @param from The index of the first byte of the name.
+     * @param to The index just past the last byte of the name.
+     * @param hash The hash of the name.
+     * @param slot The free table slot the name hashes to.
+     * @return The ID of the new name.
+     * @throws IllegalStateException If the names would take more bytes than a buffer can hold.
+     */
+    private int add(ByteBuffer buffer, int from, int to, int hash, int slot) {
+        int length = to - from;
+        long required = (long) arenaSize + length;
+        if (required > MAX_ARENA_SIZE) {
+            throw new IllegalStateException("The point names take more than " + MAX_ARENA_SIZE + " bytes.");
+        }
+        if (required > arena.capacity()) {
+            int capacity = (int) Math.min(MAX_ARENA_SIZE, Math.max(2L * arena.capacity(), required));
+            arena = store.allocateBytes(capacity).put(0, arena, 0, arenaSize);
+        }
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2 + 1);
+        }
+        arena.put(arenaSize, buffer, from, length);
+        arenaSize += length;
+        int id = count++;
+        offsets[count] = arenaSize;
+        hashes[id] = hash;
+        table[slot] = id;
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Replaces the hash table with an empty one of the specified size and puts every name into it.
+     *
+     * @param size The number of slots of the new table, a power of two.
+     */
+    private void rehash(int size) {
+        table = new int[size];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+    /**
+     * Checks whether the stored name with the specified ID equals the specified bytes.
+     *
+     * @param id The ID of a stored name.
+     * @param buffer The buffer holding the bytes.
+     * @param from The index of the first byte.
+     * @param to The index just past the last byte.
+     * @return True if the bytes are the same, false otherwise.
+     */
+    private boolean matches(int id, ByteBuffer buffer, int from, int to) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (arena.get(start + i - from) != buffer.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the FNV-1a hash of the specified bytes.
+     *
+     * @param buffer The buffer holding the bytes.
+     * @param from The index of the first byte.
+     * @param to The index just past the last byte.
+     * @return The hash of the bytes.
+     */
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.Arrays;
+
+/**
+ * The OverlaySearch class measures route lengths and distances to the ending point of a route query
+ * on a multi-level overlay. The overlay is seen from both ends of the query: the roads of the level 1
+ * cells of the two ends and, for every other point, the boundary distances of the highest level at
+ * which its cell holds neither end. Aiming the search at a query runs Dijkstra's algorithm on this
+ * overlay from the end, or from both ends on an overlay without levels, which gives the length of
+ * the shortest route while crossing far cells in a few steps.
+ * <p>
+ * The distance of a point to the end is then found from the distances of the backward search: at a
+ * point of the overlay directly, and inside a cell from the distances of its boundary points, one
+ * level down at a time, remembered for the rest of the query. These distances are exact up to the
+ * radius the backward search settled and are cut off at that radius beyond it, so as the lower
+ * bound of a restricted Dijkstra search they keep it off every point that cannot be on a shortest
+ * route, just like the backward search of a bidirectional search does. The arrays are sized once
+ * for the graph and reused by every query, so an instance must not be shared between threads.
+ */
+class OverlaySearch implements LowerBound {
+    private final MultiLevelOverlay overlay;
+    private final CsrGraph graph;
+    private final int[] forwardDistances;
+    private final int[] backwardDistances;
+    private final int[] forwardMarks;
+    private final int[] backwardMarks;
+    private final int[] cellDistances;
+    private final int[][] cellMarks;
+    private final int[][] radiusMarks;
+    private final boolean[][] beyondRadius;
+    private final IndexedHeap forwardQueue;
+    private final IndexedHeap backwardQueue;
+    private final int[] nodeDistances;
+    private final IndexedHeap nodeQueue;
+    private int source;
+    private int target;
+    private int mark;
+    private long meetingDistance;
+    private long backwardRadius;
+    private long settledCount;
+    private long relaxedCount;
+
+    /**
+     * Constructs an OverlaySearch for the specified overlay, as last customized.
+     *
+     * @param overlay The multi-level overlay to search.
+     */
+    OverlaySearch(MultiLevelOverlay overlay) {
+        this.overlay = overlay;
+        this.graph = overlay.getGraph();
+        int pointCount = graph.getPointCount();
+        this.forwardDistances = new int[pointCount];
+        this.backwardDistances = new int[pointCount];
+        this.forwardMarks = new int[pointCount];
+        this.backwardMarks = new int[pointCount];
+        this.cellDistances = new int[pointCount];
+        this.cellMarks = new int[overlay.getLevelCount() + 1][];
+        this.radiusMarks = new int[overlay.getLevelCount() + 1][];
+        this.beyondRadius = new boolean[overlay.getLevelCount() + 1][];
+        for (int level = 1; level <= overlay.getLevelCount(); level++) {
+            cellMarks[level] = new int[overlay.getCellCount(level)];
+            radiusMarks[level] = new int[overlay.getCellCount(level)];
+            beyondRadius[level] = new boolean[overlay.getCellCount(level)];
+        }
+        this.forwardQueue = new IndexedHeap(pointCount);
+        this.backwardQueue = new IndexedHeap(pointCount);
+        this.nodeDistances = new int[overlay.getMaxNodeCount()];
+        this.nodeQueue = new IndexedHeap(overlay.getMaxNodeCount());
+    }
+
+    /**
+     * Gets the graph this search runs on.
+     *
+     * @return The compressed graph.
+     */
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Searches the overlay of a query for the length of the shortest route, and forgets the
+     * distances found inside cells for the last query. On an overlay with levels the backward
+     * search runs until it settles the starting point, so that its radius covers every shortest
+     * route; it crosses far cells in a few steps, so this is cheaper than searching their roads
+     * from the start. On an overlay without levels both searches run until they meet, as in a
+     * bidirectional search.
+     *
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     * @return The length of the shortest route, or Long.MAX_VALUE if the points are not connected.
+     */
+    long aim(int source, int target) {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(forwardMarks, 0);
+            Arrays.fill(backwardMarks, 0);
+            for (int level = 1; level <= overlay.getLevelCount(); level++) {
+                Arrays.fill(cellMarks[level], 0);
+                Arrays.fill(radiusMarks[level], 0);
+            }
+            mark = 0;
+        }
+        this.source = source;
+        this.target = target;
+        mark++;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        meetingDistance = source == target ? 0 : Long.MAX_VALUE;
+        relax(forwardQueue, forwardDistances, forwardMarks, backwardDistances, backwardMarks, source, 0);
+        relax(backwardQueue, backwardDistances, backwardMarks, forwardDistances, forwardMarks, target, 0);
+
+        if (overlay.getLevelCount() == 0) {
+            searchBothWays();
+        } else {
+            while (topDistance(backwardQueue) < meetingDistance) {
+                settleNext(backwardQueue, backwardDistances, backwardMarks, forwardDistances, forwardMarks);
+            }
+        }
+        backwardRadius = topDistance(backwardQueue);
+        return meetingDistance;
+    }
+
+    /**
+     * Settles points of the two searches, always from the one whose next point is closer, until
+     * no route through an unsettled point can be shorter than the meeting distance.
+     */
+    private void searchBothWays() {
+        while (true) {
+            long forwardTop = topDistance(forwardQueue);
+            long backwardTop = topDistance(backwardQueue);
+            if (forwardTop == Long.MAX_VALUE && backwardTop == Long.MAX_VALUE || forwardTop >= meetingDistance - backwardTop) {
+                return;
+            }
+            if (forwardTop <= backwardTop) {
+                settleNext(forwardQueue, forwardDistances, forwardMarks, backwardDistances, backwardMarks);
+            } else {
+                settleNext(backwardQueue, backwardDistances, backwardMarks, forwardDistances, forwardMarks);
+            }
+        }
+    }
+
+    /**
+     * Gets the distance from the specified point to the ending point, from the backward search at
+     * the points of the overlay and from the distances inside the level 1 cell of the point
+     * otherwise. Distances beyond the radius of the backward search are cut off at that radius.
+     *
+     * @param point The ID of the point.
+     * @return The shortest distance to the ending point if it is within the radius of the backward search, the radius otherwise.
+     */
+    @Override
+    public long toTarget(int point) {
+        int level = overlay.levelOf(source, target, point);
+        int distance;
+        if (level == 0) {
+            distance = backwardMarks[point] == mark ? backwardDistances[point] : MultiLevelOverlay.UNREACHABLE;
+        } else if (isBeyondRadius(level, point)) {
+            return backwardRadius;
+        } else {
+            extendInto(1, point, level);
+            distance = cellDistances[point];
+        }
+        return distance == MultiLevelOverlay.UNREACHABLE ? backwardRadius : Math.min(distance, backwardRadius);
+    }
+
+    /**
+     * Checks whether the cell of a point lies beyond the radius of the backward search, which is
+     * the case if the search settled none of its boundary points. Every route from the cell to the
+     * end leaves it through a boundary point, so the points of such a cell need no distances.
+     *
+     * @param level The level of the point in the overlay of the query.
+     * @param point The ID of the point.
+     * @return True if no boundary point of the cell of the point is within the radius, false otherwise.
+     */
+    private boolean isBeyondRadius(int level, int point) {
+        int cell = overlay.getCell(level, point);
+        if (radiusMarks[level][cell] != mark) {
+            radiusMarks[level][cell] = mark;
+            beyondRadius[level][cell] = true;
+            for (int index = overlay.firstBoundary(level, point); index < overlay.endBoundary(level, point); index++) {
+                int boundary = overlay.boundaryPoint(level, index);
+                if (backwardMarks[boundary] == mark && backwardDistances[boundary] < backwardRadius) {
+                    beyondRadius[level][cell] = false;
+                    break;
+                }
+            }
+        }
+        return beyondRadius[level][cell];
+    }
+
+    /**
+     * Finds the distances to the ending point inside the cell of a point on a level, unless they were
+     * found for this query already. The distances of the boundary points of the cell come from the
+     * backward search on the level of the point, and from the cell on the level above otherwise.
+     *
+     * @param level The level of the cell.
+     * @param point The ID of a point of the cell.
+     * @param top The level of the point in the overlay of the query.
+     */
+    private void extendInto(int level, int point, int top) {
+        int cell = overlay.getCell(level, point);
+        if (cellMarks[level][cell] == mark) {
+            return;
+        }
+        cellMarks[level][cell] = mark;
+        if (level == top) {
+            for (int index = overlay.firstBoundary(level, point); index < overlay.endBoundary(level, point); index++) {
+                int boundary = overlay.boundaryPoint(level, index);
+                cellDistances[boundary] = backwardMarks[boundary] == mark ? backwardDistances[boundary] : MultiLevelOverlay.UNREACHABLE;
+            }
+        } else {
+            extendInto(level + 1, point, top);
+        }
+        settledCount += overlay.extendDistances(level, cell, cellDistances, nodeDistances, nodeQueue);
+    }
+
+    /**
+     * Gets the distance of the first point in the queue of one of the searches.
+     *
+     * @param queue The queue of the search.
+     * @return The distance of the first point, or Long.MAX_VALUE if the queue is empty.
+     */
+    private static long topDistance(IndexedHeap queue) {
+        return queue.isEmpty() ? Long.MAX_VALUE : queue.peekKey() >>> 32;
+    }
+
+    /**
+     * Settles the next point of one of the searches and relaxes its boundary distances and the roads
+     * leaving its cell, or all of its roads if it lies in the level 1 cell of either end.
+     *
+     * @param queue The queue of the search.
+     * @param distances The distances of the search.
+     * @param marks The marks of the points the search reached.
+     * @param oppositeDistances The distances of the other search.
+     * @param oppositeMarks The marks of the points the other search reached.
+     */
+    private void settleNext(IndexedHeap queue, int[] distances, int[] marks, int[] oppositeDistances, int[] oppositeMarks) {
+        int point = queue.poll();
+        int distance = distances[point];
+        int level = overlay.levelOf(source, target, point);
+        settledCount++;
+        if (level > 0) {
+            int first = overlay.firstBoundary(level, point);
+            int end = overlay.endBoundary(level, point);
+            int row = overlay.firstBoundaryDistance(level, point) - first;
+            relaxedCount += end - first;
+            for (int index = first; index < end; index++) {
+                int boundaryDistance = overlay.boundaryDistance(level, row + index);
+                if (boundaryDistance != MultiLevelOverlay.UNREACHABLE) {
+                    relax(queue, distances, marks, oppositeDistances, oppositeMarks,
+                            overlay.boundaryPoint(level, index), distance + boundaryDistance);
+                }
+            }
+        }
+        relaxedCount += graph.endArc(point) - graph.firstArc(point);
+        for (int arc = graph.firstArc(point); arc < graph.endArc(point); arc++) {
+            int next = graph.target(arc);
+            if (level == 0 || overlay.getCell(level, next) != overlay.getCell(level, point)) {
+                relax(queue, distances, marks, oppositeDistances, oppositeMarks, next, distance + graph.weight(arc));
+            }
+        }
+    }
+
+    /**
+     * Lowers the distance of a point in one of the searches if that search did not reach it yet or
+     * the new distance is smaller, and shortens the meeting distance if the other search reached it.
+     *
+     * @param queue The queue of the search.
+     * @param distances The distances of the search.
+     * @param marks The marks of the points the search reached.
+     * @param oppositeDistances The distances of the other search.
+     * @param oppositeMarks The marks of the points the other search reached.
+     * @param point The ID of the point.
+     * @param distance The new distance.
+     */
+    private void relax(IndexedHeap queue, int[] distances, int[] marks, int[] oppositeDistances, int[] oppositeMarks,
+                       int point, int distance) {
+        if (marks[point] != mark || distance < distances[point]) {
+            marks[point] = mark;
+            distances[point] = distance;
+            queue.push(point, ((long) distance << 32) | point);
+            if (oppositeMarks[point] == mark) {
+                meetingDistance = Math.min(meetingDistance, (long) distance + oppositeDistances[point]);
+            }
+        }
+    }
+
+    /**
+     * Hands the effort counted since the last hand-over to the specified counters as one search,
+     * counting every point measured inside a cell as settled, and starts counting again.
+     *
+     * @param counters The counters to add the effort to.
+     */
+    void drainCounts(Metrics.Counters counters) {
+        counters.add(settledCount, relaxedCount, forwardQueue.getPushCount() + backwardQueue.getPushCount(),
+                forwardQueue.getPollCount() + backwardQueue.getPollCount(), 0,
+                Math.max(forwardQueue.getPeakSize(), backwardQueue.getPeakSize()));
+        settledCount = 0;
+        relaxedCount = 0;
+        forwardQueue.resetCounts();
+        backwardQueue.resetCounts();
+    }
+}
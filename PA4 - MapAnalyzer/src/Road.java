@@ -1,10 +1,14 @@
 /**
  * The Road class represents a road with a starting point, an ending point,
- * a distance, and a unique road ID.
+ * a distance, and a unique road ID. Roads made by a graph refer to their points by ID
+ * in the name dictionary of the graph, and decode the names only when they are asked for.
  */
 public class Road {
     private String startPoint;
     private String endPoint;
+    private NameDictionary names;
+    private int startId;
+    private int endId;
     private int distance;
     private int roadId;
 
@@ -24,13 +28,30 @@ public class Road {
         this.roadId = roadId;
     }
 
+    /**
+     * Constructs a Road whose points are named in a dictionary.
+     *
+     * @param names The dictionary holding the names of the points.
+     * @param startId The ID of the starting point in the dictionary.
+     * @param endId The ID of the ending point in the dictionary.
+     * @param distance The distance of the road.
+     * @param roadId The unique identifier of the road.
+     */
+    Road(NameDictionary names, int startId, int endId, int distance, int roadId) {
+        this.names = names;
+        this.startId = startId;
+        this.endId = endId;
+        this.distance = distance;
+        this.roadId = roadId;
+    }
+
     /**
      * Gets the starting point of the road.
      *
      * @return The starting point of the road.
      */
     public String getStartPoint() {
-        return startPoint;
+        return startPoint != null ? startPoint : names.getName(startId);
     }
 
     /**
@@ -39,7 +60,7 @@ public class Road {
      * @return The ending point of the road.
      */
     public String getEndPoint() {
-        return endPoint;
+        return endPoint != null ? endPoint : names.getName(endId);
     }
 
     /**
@@ -0,0 +1,203 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The RoadIndex class maps road IDs to the positions of the roads in a graph in constant time.
+ * It is an open-addressing hash table of primitive ints; when the road IDs are compact it can
+ * additionally be turned into a dense array indexed by the road ID.
+ */
+class RoadIndex {
+    private static final int EMPTY = -1;
+
+    private int[] keys = new int[16];
+    private int[] values = new int[16];
+    private int size;
+    private int minRoadId = Integer.MAX_VALUE;
+    private int maxRoadId = Integer.MIN_VALUE;
+    private int[] dense;
+
+    /**
+     * Constructs an empty RoadIndex.
+     */
+    public RoadIndex() {
+        Arrays.fill(values, EMPTY);
+    }
+
+    /**
+     * Writes the table, and the dense array if there is one, to a snapshot.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(minRoadId);
+        out.writeInt(maxRoadId);
+        GraphSnapshot.writeInts(out, keys, keys.length);
+        GraphSnapshot.writeInts(out, values, values.length);
+        GraphSnapshot.writeInts(out, dense == null ? new int[0] : dense, dense == null ? 0 : dense.length);
+    }
+
+    /**
+     * Reads an index written by writeTo.
+     *
+     * @param in The reader of the snapshot, positioned at the index.
+     * @return The index read from the snapshot.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    public static RoadIndex readFrom(SnapshotReader in) throws IOException {
+        RoadIndex index = new RoadIndex();
+        index.size = in.readInt();
+        index.minRoadId = in.readInt();
+        index.maxRoadId = in.readInt();
+        index.keys = in.readInts();
+        index.values = in.readInts();
+        int[] dense = in.readInts();
+        index.dense = dense.length == 0 ? null : dense;
+        return index;
+    }
+
+    /**
+     * Adds the position of a road to the index unless its ID is already present.
+     *
+     * @param roadId The unique identifier of the road.
+     * @param position The position of the road in the graph.
+     * @return True if the road was added, false if a road with the same ID already exists.
+     */
+    public boolean put(int roadId, int position) {
+        if (get(roadId) != EMPTY) {
+            return false;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        insert(roadId, position);
+        size++;
+        minRoadId = Math.min(minRoadId, roadId);
+        maxRoadId = Math.max(maxRoadId, roadId);
+        dense = null;
+        return true;
+    }
+
+    /**
+     * Removes the road with the specified ID from the index. Later entries of its probe sequence
+     * are moved back, so lookups never stop at the emptied slot too early.
+     *
+     * @param roadId The unique identifier of the road.
+     * @return True if the road was removed, false if there is no road with that ID.
+     */
+    public boolean remove(int roadId) {
+        int mask = keys.length - 1;
+        int slot = hash(roadId) & mask;
+        while (values[slot] != EMPTY && keys[slot] != roadId) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == EMPTY) {
+            return false;
+        }
+        values[slot] = EMPTY;
+        for (int next = (slot + 1) & mask; values[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = EMPTY;
+                slot = next;
+            }
+        }
+        size--;
+        dense = null;
+        return true;
+    }
+
+    /**
+     * Gets the position of the road with the specified ID.
+     *
+     * @param roadId The unique identifier of the road.
+     * @return The position of the road, or -1 if there is no road with that ID.
+     */
+    public int get(int roadId) {
+        if (dense != null) {
+            long slot = (long) roadId - minRoadId;
+            return slot >= 0 && slot < dense.length ? dense[(int) slot] : EMPTY;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(roadId) & mask; values[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == roadId) {
+                return values[slot];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Gets the number of roads in the index.
+     *
+     * @return The number of roads.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Switches lookups to a dense array when the road IDs span a range of at most twice the
+     * number of roads. Otherwise the hash table keeps serving lookups.
+     */
+    public void compact() {
+        if (dense != null || size == 0 || (long) maxRoadId - minRoadId + 1 > 2L * size) {
+            return;
+        }
+        int[] table = new int[maxRoadId - minRoadId + 1];
+        Arrays.fill(table, EMPTY);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != EMPTY) {
+                table[keys[slot] - minRoadId] = values[slot];
+            }
+        }
+        dense = table;
+    }
+
+    /**
+     * Doubles the capacity of the hash table and reinserts every entry.
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, EMPTY);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != EMPTY) {
+                insert(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    /**
+     * Stores an entry in the first free slot of its probe sequence.
+     *
+     * @param roadId The unique identifier of the road.
+     * @param position The position of the road in the graph.
+     */
+    private void insert(int roadId, int position) {
+        int mask = keys.length - 1;
+        int slot = hash(roadId) & mask;
+        while (values[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = roadId;
+        values[slot] = position;
+    }
+
+    /**
+     * Spreads the bits of a road ID so that consecutive IDs do not cluster in the table.
+     *
+     * @param roadId The unique identifier of the road.
+     * @return The hash of the road ID.
+     */
+    private static int hash(int roadId) {
+        int h = roadId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
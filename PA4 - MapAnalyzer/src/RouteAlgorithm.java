@@ -0,0 +1,42 @@
+/**
+ * The RouteAlgorithm enum lists the ways the graph can search for the shortest route
+ * between two points. Every algorithm returns the same route.
+ */
+public enum RouteAlgorithm {
+    /**
+     * Dijkstra's algorithm from the starting point, stopping when the ending point is settled.
+     */
+    DIJKSTRA,
+    /**
+     * Dijkstra's algorithm from both ends at once, stopping when the two searches meet.
+     */
+    BIDIRECTIONAL,
+    /**
+     * A* search guided by landmark distances, followed by a Dijkstra search restricted to the
+     * points that can lie on a route of the length A* found.
+     */
+    ALT,
+    /**
+     * Distances to the ending point measured on a contraction hierarchy of the graph, followed by a
+     * Dijkstra search restricted to the points on shortest routes. Building the hierarchy takes
+     * seconds on large maps, so it is only built where it is reused, in batch and server mode or
+     * for a snapshot; until then routes are found with Dijkstra's algorithm. Maps with roads of
+     * length zero are searched bidirectionally instead.
+     */
+    CONTRACTION_HIERARCHY,
+    /**
+     * Experimental. Distances to the ending point measured by delta-stepping, which relaxes the
+     * roads of many points at once on all cores, followed by a Dijkstra search restricted to the
+     * points on shortest routes. It does more work than Dijkstra's algorithm and has only been
+     * measured on a single core, where it is slower on every map, so DIJKSTRA remains the choice
+     * for large maps. Maps with roads of length zero are searched with Dijkstra's algorithm instead.
+     */
+    DELTA_STEPPING,
+    /**
+     * Distances to the ending point measured on a multi-level overlay of cells, followed by a
+     * Dijkstra search restricted to the points that can lie on a shortest route. The boundary
+     * distances of the cells are recomputed when road distances change instead of being built
+     * again. Maps with roads of length zero are searched bidirectionally instead.
+     */
+    OVERLAY
+}
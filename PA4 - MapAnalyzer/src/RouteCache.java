@@ -0,0 +1,118 @@
+import java.util.*;
+
+/**
+ * The RouteCache class remembers the most recently used shortest routes, keyed by the version of
+ * the graph they were found on and their start and end points. Every change to a graph gives it a
+ * new version, so routes of an older graph are never returned and simply age out. When the cache
+ * is full, the least recently used route is evicted. It may be used by several threads at once.
+ */
+class RouteCache {
+    private final int capacity;
+    private final LinkedHashMap<RouteKey, List<Road>> routes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs an empty RouteCache.
+     *
+     * @param capacity The largest number of routes kept; zero disables the cache.
+     */
+    RouteCache(int capacity) {
+        this.capacity = capacity;
+        this.routes = new LinkedHashMap<RouteKey, List<Road>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, List<Road>> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached route between two points of a graph version, counting a hit or a miss.
+     *
+     * @param version The version of the graph.
+     * @param start The starting point.
+     * @param end The ending point.
+     * @return The cached route, or null if it is not cached.
+     */
+    synchronized List<Road> get(long version, String start, String end) {
+        List<Road> route = routes.get(new RouteKey(version, start, end));
+        if (route == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return route;
+    }
+
+    /**
+     * Caches the route between two points of a graph version.
+     *
+     * @param version The version of the graph.
+     * @param start The starting point.
+     * @param end The ending point.
+     * @param route The route to cache.
+     * @return The cached, unmodifiable copy of the route.
+     */
+    synchronized List<Road> put(long version, String start, String end, List<Road> route) {
+        List<Road> copy = Collections.unmodifiableList(new ArrayList<>(route));
+        if (capacity > 0) {
+            routes.put(new RouteKey(version, start, end), copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the number of lookups that found a cached route.
+     *
+     * @return The number of hits.
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no cached route.
+     *
+     * @return The number of misses.
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The RouteKey class identifies a route by graph version, start point and end point.
+     */
+    private static final class RouteKey {
+        private final long version;
+        private final String start;
+        private final String end;
+
+        /**
+         * Constructs a RouteKey.
+         *
+         * @param version The version of the graph.
+         * @param start The starting point.
+         * @param end The ending point.
+         */
+        RouteKey(long version, String start, String end) {
+            this.version = version;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey key = (RouteKey) other;
+            return version == key.version && start.equals(key.start) && end.equals(key.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, start, end);
+        }
+    }
+}
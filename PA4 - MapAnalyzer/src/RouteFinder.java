@@ -1,5 +1,8 @@
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 /**
  * The RouteFinder class is responsible for managing the graph,
@@ -7,48 +10,214 @@ import java.util.Locale;
  * and performing analysis.
  */
 public class RouteFinder {
+    private static final int DEFAULT_ROUTE_CACHE_CAPACITY = 1024;
+
     private Graph graph;
     private String start;
     private String end;
     private String outputFilePath;
+    private RouteAlgorithm routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+    private MstAlgorithm mstAlgorithm = MstAlgorithm.PRIM;
+    private DynamicSpanningForest barelyConnectedMap;
+    private volatile TreePathIndex barelyConnectedMapIndex;
+    private RouteCache routeCache = new RouteCache(DEFAULT_ROUTE_CACHE_CAPACITY);
+    private int alternativeCount = 1;
+    private long parseNanos;
+    private Metrics metrics;
 
     /**
      * Constructs a RouteFinder object and initializes the graph using the given file path.
+     * The file may be a binary snapshot written by saveSnapshot, which is loaded as it is;
+     * otherwise it is a text map, which is memory-mapped and streamed into the graph by a MapLoader.
      *
      * @param filePath The path to the input file containing the graph data.
      * @param outputFilePath The path to the output file where results will be written.
      */
     public RouteFinder(String filePath, String outputFilePath) {
+        this(filePath, outputFilePath, GraphStore.HEAP);
+    }
+
+    /**
+     * Constructs a RouteFinder object whose graph keeps its arrays in the specified store, and
+     * initializes the graph using the given file path like the other constructor.
+     *
+     * @param filePath The path to the input file containing the graph data.
+     * @param outputFilePath The path to the output file where results will be written.
+     * @param store The store the graph keeps its road arrays, compressed view and point names in.
+     */
+    RouteFinder(String filePath, String outputFilePath, GraphStore store) {
         this.outputFilePath = outputFilePath;
-        String[] inputLines = FileInput.readFile(filePath, true, true);
-        if (inputLines == null || inputLines.length < 2) {
-            throw new IllegalArgumentException("Invalid input file or format.");
+        long startTime = System.nanoTime();
+        if (GraphSnapshot.isSnapshot(filePath)) {
+            GraphSnapshot snapshot = GraphSnapshot.load(filePath, store);
+            if (snapshot == null) {
+                throw new IllegalArgumentException("Invalid input file or format.");
+            }
+            this.graph = snapshot.getGraph();
+            this.start = snapshot.getStart();
+            this.end = snapshot.getEnd();
+        } else {
+            this.graph = new Graph(store);
+            MapLoader mapLoader = new MapLoader(graph);
+            mapLoader.load(filePath);
+            this.start = mapLoader.getStart();
+            this.end = mapLoader.getEnd();
         }
-        this.graph = new Graph();
-        setupGraph(inputLines);
+        this.parseNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Sets the algorithm used to find the shortest routes.
+     *
+     * @param routeAlgorithm The algorithm used for the route searches.
+     */
+    public void setRouteAlgorithm(RouteAlgorithm routeAlgorithm) {
+        this.routeAlgorithm = routeAlgorithm;
+    }
+
+    /**
+     * Sets the algorithm used to build the Barely Connected Map.
+     *
+     * @param mstAlgorithm The algorithm used for the minimum spanning tree.
+     */
+    public void setMstAlgorithm(MstAlgorithm mstAlgorithm) {
+        this.mstAlgorithm = mstAlgorithm;
+    }
+
+    /**
+     * Sets the number of routes given for every query, the fastest one and then the next fastest
+     * routes that visit no point twice.
+     *
+     * @param alternativeCount The largest number of routes per query.
+     */
+    public void setAlternativeCount(int alternativeCount) {
+        this.alternativeCount = alternativeCount;
     }
 
     /**
-     * Sets up the graph using the input lines from the file.
+     * Sets the number of routes kept in the route cache, emptying the cache.
      *
-     * @param inputLines The lines of input from the file.
+     * @param capacity The largest number of cached routes; zero disables the cache.
      */
-    private void setupGraph(String[] inputLines) {
-        String[] startEnd = inputLines[0].split("\\t");
-        if (startEnd.length != 2) {
-            throw new IllegalArgumentException("First line must contain start and end points separated by a tab.");
+    public void setRouteCacheCapacity(int capacity) {
+        this.routeCache = new RouteCache(capacity);
+    }
+
+    /**
+     * Starts collecting metrics of this run: the time spent reading the map so far, and from now on
+     * the effort of the route searches and tree builds and the time of each analysis phase.
+     *
+     * @param metrics The metrics to collect into.
+     */
+    void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        graph.setMetrics(metrics);
+        metrics.addPhase("parse", parseNanos);
+    }
+
+    /**
+     * Adds the time since the specified moment to a phase of the metrics, if they are collected.
+     *
+     * @param phase The name of the phase.
+     * @param startTime The System.nanoTime value when the phase started.
+     * @return The System.nanoTime value when the phase ended.
+     */
+    private long endPhase(String phase, long startTime) {
+        long endTime = System.nanoTime();
+        if (metrics != null) {
+            metrics.addPhase(phase, endTime - startTime);
         }
-        this.start = startEnd[0];
-        this.end = startEnd[1];
+        return endTime;
+    }
 
-        for (int i = 1; i < inputLines.length; i++) {
-            String[] parts = inputLines[i].split("\\t");
-            if (parts.length == 4) {
-                graph.addRoad(new Road(parts[0], parts[1], Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
-            } else {
-                System.out.println("Skipping invalid line: " + inputLines[i]);
-            }
+    /**
+     * Gets the starting point named on the first line of the map.
+     *
+     * @return The name of the starting point.
+     */
+    String getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the ending point named on the first line of the map.
+     *
+     * @return The name of the ending point.
+     */
+    String getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the statistics of the current graph: its points, roads, material, degrees and components.
+     *
+     * @return The statistics of the graph.
+     */
+    GraphStatistics getMapStatistics() {
+        return graph.getStatistics();
+    }
+
+    /**
+     * Gets the cache of the routes found so far, with its hit and miss counts.
+     *
+     * @return The route cache.
+     */
+    RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Finds the shortest route on a graph, taking it from the route cache when the same route was
+     * found on the same version of the graph before.
+     *
+     * @param on The graph to search.
+     * @param from The starting point.
+     * @param to The ending point.
+     * @return A list of roads representing the shortest route.
+     */
+    private List<Road> findShortestRoute(Graph on, String from, String to) {
+        long version = on.getVersion();
+        List<Road> route = routeCache.get(version, from, to);
+        if (route == null) {
+            route = routeCache.put(version, from, to, on.findShortestRoute(from, to, routeAlgorithm));
         }
+        return route;
+    }
+
+    /**
+     * Writes the loaded map as a binary snapshot, which later runs can read instead of the text map.
+     *
+     * @param snapshotFilePath The path of the snapshot file to write.
+     * @return True if the snapshot was written, false otherwise.
+     */
+    public boolean saveSnapshot(String snapshotFilePath) {
+        return new GraphSnapshot(graph, start, end).save(snapshotFilePath);
+    }
+
+    /**
+     * Prepares the landmark distances used by the ALT route algorithm. When a landmark file is
+     * given, they are loaded from it if it was written for the same map; otherwise they are
+     * computed and the file is written for the next run. Without a file nothing is written.
+     *
+     * @param count The number of landmarks to choose when they have to be computed.
+     * @param landmarkFilePath The path of the landmark file, or null to only compute them.
+     */
+    public void prepareLandmarks(int count, String landmarkFilePath) {
+        if (landmarkFilePath == null) {
+            graph.prepareLandmarks(count);
+        } else if (!graph.loadLandmarks(landmarkFilePath)) {
+            graph.prepareLandmarks(count);
+            graph.saveLandmarks(landmarkFilePath);
+        }
+    }
+
+    /**
+     * Prepares the contraction hierarchy used by the contraction hierarchy route algorithm. It is
+     * only worth building when many routes are asked on the loaded map, or when it is saved in a
+     * snapshot; otherwise that algorithm runs Dijkstra's algorithm.
+     */
+    public void prepareContractionHierarchy() {
+        graph.prepareContractionHierarchy();
     }
 
     /**
@@ -57,16 +226,56 @@ public class RouteFinder {
      * @return The total distance of the shortest route.
      */
     public int findAndPrintShortestRoute() {
-        List<Road> shortestRoute = graph.findShortestRoute(start, end);
+        List<Road> shortestRoute = findShortestRoute(graph, start, end);
+        FileOutput.writeToFile(outputFilePath, formatRoute(graph, shortestRoute, start, end, ""), true, false);
+        return getRouteDistance(shortestRoute);
+    }
+
+    /**
+     * Finds the fastest routes from the start point to the end point of the map, as many as the
+     * alternative count allows, and prints one route block for each, shortest first.
+     */
+    public void findAndPrintAlternativeRoutes() {
+        FileOutput.writeToFile(outputFilePath, formatRoutes(start, end), true, false);
+    }
+
+    /**
+     * Finds the fastest routes between two points and formats them as route blocks, shortest first.
+     *
+     * @param from The starting point of the routes.
+     * @param to The ending point of the routes.
+     * @return The formatted routes, or a "No path found" line if there is no route.
+     */
+    private String formatRoutes(String from, String to) {
+        List<List<Road>> routes = graph.findShortestRoutes(from, to, alternativeCount);
+        if (routes.isEmpty()) {
+            return formatRoute(graph, null, from, to, "");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (List<Road> route : routes) {
+            sb.append(formatRoute(graph, route, from, to, ""));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats a route as a "Fastest Route" block, or as a "No path found" line if the route is empty.
+     *
+     * @param on The graph the route was found on.
+     * @param route The roads of the route, each holding the distance travelled up to its end.
+     * @param from The starting point of the route.
+     * @param to The ending point of the route.
+     * @param mapSuffix Text inserted after the end point to name the map, or an empty string.
+     * @return The formatted route.
+     */
+    private String formatRoute(Graph on, List<Road> route, String from, String to, String mapSuffix) {
         StringBuilder sb = new StringBuilder();
-        int totalDistance = 0;
-        if (shortestRoute != null && !shortestRoute.isEmpty()) {
-            totalDistance = shortestRoute.get(shortestRoute.size() - 1).getDistance();
+        if (route != null && !route.isEmpty()) {
             int previousDistance = 0;
-            sb.append("Fastest Route from ").append(start).append(" to ").append(end).append(" (").append(totalDistance).append(" KM):\n");
-            for (int i = 0; i < shortestRoute.size(); i++) {
-                Road road = shortestRoute.get(i);  // Access the Road object at index i
-                Road originalRoad = graph.getOriginalRoadById(road.getRoadId());
+            sb.append("Fastest Route from ").append(from).append(" to ").append(to).append(mapSuffix).append(" (").append(getRouteDistance(route)).append(" KM):\n");
+            for (int i = 0; i < route.size(); i++) {
+                Road road = route.get(i);  // Access the Road object at index i
+                Road originalRoad = on.getOriginalRoadById(road.getRoadId());
                 // Calculate the difference in distance from the previous road, except for the first road
                 int distanceDifference = (i == 0) ? road.getDistance() : road.getDistance() - previousDistance;
 
@@ -79,17 +288,188 @@ public class RouteFinder {
             }
 
         } else {
-            sb.append("No path found from ").append(start).append(" to ").append(end).append(".\n");
+            sb.append("No path found from ").append(from).append(" to ").append(to).append(".\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the total distance of a route.
+     *
+     * @param route The roads of the route, each holding the distance travelled up to its end.
+     * @return The total distance, or 0 if the route is empty.
+     */
+    private int getRouteDistance(List<Road> route) {
+        return route == null || route.isEmpty() ? 0 : route.get(route.size() - 1).getDistance();
+    }
+
+    /**
+     * Answers every start and end pair in the query file on the current graph and writes one route
+     * block per query, in the order of the queries. The graph is built once and the queries are
+     * answered in parallel. Invalid query lines are reported on the console and skipped.
+     *
+     * @param queryFilePath The path to the file with one tab-separated start and end pair per line.
+     */
+    public void answerQueries(String queryFilePath) {
+        String[] queryLines = FileInput.readFile(queryFilePath, true, true);
+        if (queryLines == null) {
+            throw new IllegalArgumentException("Invalid query file.");
+        }
+        String[] answers = IntStream.range(0, queryLines.length).parallel().mapToObj(i -> {
+            String[] startEnd = queryLines[i].split("\\t");
+            return startEnd.length == 2 ? answerQuery(startEnd[0], startEnd[1]) : null;
+        }).toArray(String[]::new);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < answers.length; i++) {
+            if (answers[i] == null) {
+                System.out.println("Skipping invalid query: " + queryLines[i]);
+            } else {
+                sb.append(answers[i]);
+            }
         }
         FileOutput.writeToFile(outputFilePath, sb.toString(), true, false);
-        return totalDistance;
     }
 
     /**
-     * Constructs the Barely Connected Map using Prim's algorithm.
+     * Answers one start and end pair on the current graph the way batch mode does.
+     *
+     * @param from The starting point.
+     * @param to The ending point.
+     * @return The route block of the fastest route, or the blocks of the alternative routes.
+     */
+    String answerQuery(String from, String to) {
+        if (alternativeCount > 1) {
+            return formatRoutes(from, to);
+        }
+        return formatRoute(graph, findShortestRoute(graph, from, to), from, to, "");
+    }
+
+    /**
+     * Computes the distances between every pair of depots in the depot file and writes them to
+     * the output file as a distance table. The searches from the depots run in parallel.
+     *
+     * @param depotFilePath The path to the file with one depot point name per line.
+     * @param binary True to write the compact binary form, false to write tab-separated text.
+     */
+    public void writeDistanceTable(String depotFilePath, boolean binary) {
+        String[] depotLines = FileInput.readFile(depotFilePath, true, true);
+        if (depotLines == null) {
+            throw new IllegalArgumentException("Invalid depot file.");
+        }
+        List<String> depots = Arrays.asList(depotLines);
+        DistanceTable table = graph.computeDistanceTable(depots, depots);
+        if (binary) {
+            table.writeBinary(outputFilePath);
+        } else {
+            table.writeTsv(outputFilePath);
+        }
+    }
+
+    /**
+     * Applies the road changes in an event file to the graph, one per line: "add" followed by
+     * the start point, end point, distance and road ID; "remove" followed by the road ID; or
+     * "reweight" followed by the road ID and the new distance, all separated by tabs. The
+     * Barely Connected Map is kept up to date event by event instead of being built again.
+     *
+     * @param eventFilePath The path to the event file.
+     */
+    public void applyRoadEvents(String eventFilePath) {
+        String[] eventLines = FileInput.readFile(eventFilePath, true, true);
+        if (eventLines == null) {
+            throw new IllegalArgumentException("Invalid event file.");
+        }
+        if (barelyConnectedMap == null) {
+            barelyConnectedMap = graph.buildDynamicBarelyConnectedMap();
+        }
+        for (String line : eventLines) {
+            if (!applyRoadEvent(line.split("\\t"))) {
+                System.out.println("Skipping invalid event: " + line);
+            }
+        }
+    }
+
+    /**
+     * Applies one road change to the graph and the Barely Connected Map.
+     *
+     * @param parts The tab-separated fields of the event line.
+     * @return True if the change was applied, false if the event is invalid or names an unknown or duplicate road.
+     */
+    private boolean applyRoadEvent(String[] parts) {
+        try {
+            if (parts[0].equals("add") && parts.length == 5) {
+                Road road = new Road(parts[1], parts[2], Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+                return graph.addRoad(road) && barelyConnectedMap.addRoad(road);
+            } else if (parts[0].equals("remove") && parts.length == 2) {
+                int roadId = Integer.parseInt(parts[1]);
+                return graph.removeRoad(roadId) && barelyConnectedMap.removeRoad(roadId);
+            } else if (parts[0].equals("reweight") && parts.length == 3) {
+                int roadId = Integer.parseInt(parts[1]);
+                int distance = Integer.parseInt(parts[2]);
+                return graph.setRoadDistance(roadId, distance) && barelyConnectedMap.setRoadDistance(roadId, distance);
+            }
+            return false;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Constructs the Barely Connected Map using the chosen minimum spanning tree algorithm, or
+     * takes it from the map kept up to date by applyRoadEvents.
      */
     public void constructBarelyConnectedMap() {
-        List<Road> mst = graph.buildBarelyConnectedMap(start);  // Assume 'start' is the starting point for Prim's
+        List<Road> mst = indexBarelyConnectedMap(start).getRoads();  // Assume 'start' is the starting point of the tree
+        FileOutput.writeToFile(outputFilePath, formatBarelyConnectedMap(mst), true, false);
+        setupGraphFromMST(mst);
+    }
+
+    /**
+     * Finds the roads of the Barely Connected Map of a point on the current graph.
+     *
+     * @param from The point to start building the tree from.
+     * @return The roads of the tree, sorted by distance and road ID.
+     */
+    private List<Road> findBarelyConnectedMap(String from) {
+        DynamicSpanningForest forest = barelyConnectedMap;
+        if (forest == null) {
+            return graph.buildBarelyConnectedMap(from, mstAlgorithm);
+        }
+        synchronized (forest) {
+            return forest.getRoads(from);
+        }
+    }
+
+    /**
+     * Gets the path index of the Barely Connected Map of a point on the current graph. The tree and
+     * its index are only built again when the graph changed since the last index was built or the
+     * point is not on that tree; as the tree of a point is the same whichever of its points it is
+     * built from, one index answers the queries between all points of the tree. When metrics are
+     * collected, building the tree is timed as "mst" and building its index as "mstIndex".
+     *
+     * @param from The point to start building the tree from.
+     * @return The path index of the tree.
+     */
+    private TreePathIndex indexBarelyConnectedMap(String from) {
+        long version = graph.getVersion();
+        TreePathIndex index = barelyConnectedMapIndex;
+        if (index == null || index.getVersion() != version || !index.contains(from)) {
+            long time = System.nanoTime();
+            List<Road> mst = findBarelyConnectedMap(from);
+            time = endPhase("mst", time);
+            index = new TreePathIndex(mst, from, version);
+            endPhase("mstIndex", time);
+            barelyConnectedMapIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Formats the roads of a Barely Connected Map of the current graph as a "Roads of Barely Connected Map" block.
+     *
+     * @param mst The roads of the tree.
+     * @return The formatted roads.
+     */
+    private String formatBarelyConnectedMap(List<Road> mst) {
         StringBuilder sb = new StringBuilder("Roads of Barely Connected Map is:\n");
         for (int i = 0; i < mst.size(); i++) {
             Road road = mst.get(i);  // Access the Road object at index i
@@ -99,8 +479,29 @@ public class RouteFinder {
                     .append(road.getDistance()).append("\t")
                     .append(road.getRoadId()).append("\n");
         }
-        FileOutput.writeToFile(outputFilePath, sb.toString(), true, false);
-        setupGraphFromMST(mst);
+        return sb.toString();
+    }
+
+    /**
+     * Builds the Barely Connected Map of a point on the current graph and formats its roads.
+     *
+     * @param from The point to start building the tree from.
+     * @return The roads of the tree as a "Roads of Barely Connected Map" block.
+     */
+    String describeBarelyConnectedMap(String from) {
+        return formatBarelyConnectedMap(indexBarelyConnectedMap(from).getRoads());
+    }
+
+    /**
+     * Answers one start and end pair on the Barely Connected Map of the start point. The tree and its
+     * path index are built once and reused by the following queries on the same tree.
+     *
+     * @param from The starting point.
+     * @param to The ending point.
+     * @return The route block of the route on the Barely Connected Map.
+     */
+    String answerBarelyConnectedMapQuery(String from, String to) {
+        return formatRoute(graph, indexBarelyConnectedMap(from).findRoute(from, to), from, to, " on Barely Connected Map");
     }
 
     /**
@@ -109,65 +510,97 @@ public class RouteFinder {
      * @param mst The list of roads in the MST.
      */
     public void setupGraphFromMST(List<Road> mst) {
-        this.graph = new Graph();  // Reset the graph to only use MST roads
-        for (Road road : mst) {
+        this.graph = graphOf(mst);  // Reset the graph to only use MST roads
+    }
+
+    /**
+     * Builds a graph of the specified roads, collecting into the metrics of this run.
+     *
+     * @param roads The roads of the graph.
+     * @return The new graph.
+     */
+    private Graph graphOf(List<Road> roads) {
+        Graph graph = new Graph();
+        for (Road road : roads) {
             graph.addRoad(road);
         }
+        graph.setMetrics(metrics);
+        return graph;
     }
 
     /**
-     * Finds and prints the shortest route on the Barely Connected Map.
+     * Finds and prints the shortest route on the Barely Connected Map. The route is the unique path
+     * between the points on the tree, which its path index finds without searching the map.
      *
      * @return The total distance of the shortest route on the Barely Connected Map.
      */
     public int findAndPrintShortestRouteConnectedMap() {
-        List<Road> shortestRoute = graph.findShortestRoute(start, end);
-        StringBuilder sb = new StringBuilder();
-        int totalDistance = 0;
-        if (shortestRoute != null && !shortestRoute.isEmpty()) {
-            totalDistance = shortestRoute.get(shortestRoute.size() - 1).getDistance();
-            int previousDistance = 0;
-            sb.append("Fastest Route from ").append(start).append(" to ").append(end).append(" on Barely Connected Map (").append(totalDistance).append(" KM):\n");
-            for (int i = 0; i < shortestRoute.size(); i++) {
-                Road road = shortestRoute.get(i);  // Access the Road object at index i
-                Road originalRoad = graph.getOriginalRoadById(road.getRoadId());
-
-                // Calculate the difference in distance from the previous road, except for the first road
-                int distanceDifference = (i == 0) ? road.getDistance() : road.getDistance() - previousDistance;
-
-                sb.append(originalRoad.getStartPoint()).append("\t")
-                        .append(originalRoad.getEndPoint()).append("\t")
-                        .append(distanceDifference).append("\t")  // Use the distance difference here
-                        .append(road.getRoadId()).append("\n");
-
-                previousDistance = road.getDistance();  // Update the previousDistance to the current road's distance for the next iteration
-            }
-
-        } else {
-            sb.append("No path found from ").append(start).append(" to ").append(end).append(".\n");
-        }
-        FileOutput.writeToFile(outputFilePath, sb.toString(), true, false);
-        return totalDistance;
+        List<Road> shortestRoute = indexBarelyConnectedMap(start).findRoute(start, end);
+        FileOutput.writeToFile(outputFilePath, formatRoute(graph, shortestRoute, start, end, " on Barely Connected Map"), true, false);
+        return getRouteDistance(shortestRoute);
     }
 
     /**
-     * Performs the analysis by comparing the original map with the Barely Connected Map.
+     * Performs the analysis by comparing the original map with the Barely Connected Map. Writing
+     * the analysis to the output file is timed as "write" when metrics are collected.
      */
     public void performAnalysis() {
+        String analysis = analyze(start, end);
+        long time = System.nanoTime();
+        FileOutput.writeToFile(outputFilePath, analysis, true, false);
+        endPhase("write", time);
+    }
+
+    /**
+     * Compares the current graph with its Barely Connected Map for a route between two points,
+     * leaving the current graph as it is. The work runs as stages on the common pool: once the
+     * compressed view is built, the route on the original map and the tree are found at the same
+     * time, and the route on the tree is read from its path index as soon as the tree exists. The
+     * report is put together in the usual order when both routes are known. The stages are timed
+     * as "build", "route", "mst", "mstIndex", "mstRoute" and "report" when metrics are collected.
+     *
+     * @param from The starting point of the route and of the tree.
+     * @param to The ending point of the route.
+     * @return The text of the analysis: both fastest routes, the roads of the tree and the ratios.
+     */
+    String analyze(String from, String to) {
+        Graph original = graph;
+        CompletableFuture<Void> built = CompletableFuture.runAsync(() -> {
+            long time = System.nanoTime();
+            original.prepareSearch();
+            endPhase("build", time);
+        });
         // Find the shortest route in the original graph
-        int originalShortestDistance = findAndPrintShortestRoute();
-        int totalOriginalDistance = graph.getTotalRoadDistance();
-        constructBarelyConnectedMap();
+        CompletableFuture<List<Road>> originalRoute = built.thenApplyAsync(ignored -> {
+            long time = System.nanoTime();
+            List<Road> route = findShortestRoute(original, from, to);
+            endPhase("route", time);
+            return route;
+        });
+        CompletableFuture<TreePathIndex> mst = built.thenApplyAsync(ignored -> indexBarelyConnectedMap(from));
+        CompletableFuture<List<Road>> mstRoute = mst.thenApplyAsync(tree -> {
+            long time = System.nanoTime();
+            List<Road> route = tree.findRoute(from, to);
+            endPhase("mstRoute", time);
+            return route;
+        });
+        CompletableFuture.allOf(originalRoute, mstRoute).join();
 
-        int mstShortestDistance = findAndPrintShortestRouteConnectedMap();
-        int totalMSTDistance = graph.getTotalRoadDistance();
+        long time = System.nanoTime();
+        int originalShortestDistance = getRouteDistance(originalRoute.join());
+        int totalOriginalDistance = original.getTotalRoadDistance();
+        int mstShortestDistance = getRouteDistance(mstRoute.join());
+        int totalMSTDistance = mst.join().getTotalDistance();
         double routeRatio = (double) mstShortestDistance / originalShortestDistance;
         double materialRatio = (double) totalMSTDistance / totalOriginalDistance;
         StringBuilder sb = new StringBuilder();
-        sb.append("Analysis:\n")
+        sb.append(formatRoute(original, originalRoute.join(), from, to, ""))
+                .append(formatBarelyConnectedMap(mst.join().getRoads()))
+                .append(formatRoute(original, mstRoute.join(), from, to, " on Barely Connected Map"))
+                .append("Analysis:\n")
                 .append(String.format(Locale.US, "Ratio of Construction Material Usage Between Barely Connected and Original Map: %.2f\n", materialRatio))
                 .append(String.format(Locale.US, "Ratio of Fastest Route Between Barely Connected and Original Map: %.2f", routeRatio));
-
-        FileOutput.writeToFile(outputFilePath, sb.toString(), true, false);
+        endPhase("report", time);
+        return sb.toString();
     }
 }
@@ -0,0 +1,159 @@
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The RouteServer class keeps a loaded map in memory and answers requests about it, one per line,
+ * from standard input or from the clients of a Unix domain socket. The fields of a request are
+ * separated by tabs. The start and end points are optional, in that order, and points left out
+ * are those named on the first line of the map:
+ * <ul>
+ * <li>"route", a start point and an end point: the route block batch mode writes for the pair;</li>
+ * <li>"mst" and a start point: the roads of the Barely Connected Map;</li>
+ * <li>"mstroute", a start point and an end point: the route block between them on the Barely
+ * Connected Map of the start point;</li>
+ * <li>"analysis", a start point and an end point: the whole analysis.</li>
+ * </ul>
+ * Every response starts with a line "OK" followed by the number of bytes of its body, and the body
+ * is then exactly what the same request writes to an output file, in UTF-8. An invalid request is
+ * answered with a line "ERROR" followed by the reason.
+ * <p>
+ * Every client is served on its own thread, a virtual thread when the runtime has them, and its
+ * requests are answered in order. The search state the graph keeps for each thread is thus set up
+ * once per client and reused by all of its requests.
+ */
+class RouteServer {
+    private final RouteFinder routeFinder;
+    private final ExecutorService clients = newClientExecutor();
+
+    /**
+     * Constructs a RouteServer that answers requests with the specified route finder.
+     *
+     * @param routeFinder The route finder holding the loaded map.
+     */
+    RouteServer(RouteFinder routeFinder) {
+        this.routeFinder = routeFinder;
+    }
+
+    /**
+     * Creates the executor clients are served on: one virtual thread per client when the runtime
+     * supports them, otherwise a pool that starts threads as needed and reuses idle ones.
+     *
+     * @return The executor for the clients.
+     */
+    private static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Answers the requests read from standard input on standard output until the input ends.
+     */
+    void serveStandardInput() {
+        try {
+            clients.submit(() -> serve(System.in, System.out)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Listens on a Unix domain socket and serves every client that connects, until the process ends
+     * or the socket fails.
+     *
+     * @param socketPath The path of the socket file, which must not exist yet.
+     */
+    void serveSocket(String socketPath) {
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            while (true) {
+                SocketChannel client = server.accept();
+                clients.execute(() -> serveClient(client));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Serves one client of the socket until it closes the connection.
+     *
+     * @param client The connection to the client.
+     */
+    private void serveClient(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            serve(Channels.newInputStream(channel), Channels.newOutputStream(channel));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Answers every request line of a stream, in order, until the stream ends.
+     *
+     * @param in The stream the requests are read from.
+     * @param out The stream the responses are written to.
+     */
+    private void serve(InputStream in, OutputStream out) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            BufferedOutputStream writer = new BufferedOutputStream(out);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String body = respond(line.split("\t"));
+                if (body == null) {
+                    writer.write(("ERROR Invalid request: " + line + "\n").getBytes(StandardCharsets.UTF_8));
+                } else {
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    writer.write(("OK " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8));
+                    writer.write(bytes);
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Computes the body of the response to a request.
+     *
+     * @param fields The tab-separated fields of the request line.
+     * @return The body of the response, or null if the request is invalid.
+     */
+    private String respond(String[] fields) {
+        String from = fields.length > 1 ? fields[1] : routeFinder.getStart();
+        String to = fields.length > 2 ? fields[2] : routeFinder.getEnd();
+        switch (fields[0]) {
+            case "route":
+                return fields.length <= 3 ? routeFinder.answerQuery(from, to) : null;
+            case "mstroute":
+                return fields.length <= 3 ? routeFinder.answerBarelyConnectedMapQuery(from, to) : null;
+            case "mst":
+                return fields.length <= 2 ? routeFinder.describeBarelyConnectedMap(from) : null;
+            case "analysis":
+                return fields.length <= 3 ? routeFinder.analyze(from, to) : null;
+            default:
+                return null;
+        }
+    }
+}
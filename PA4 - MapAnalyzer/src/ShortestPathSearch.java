@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+/**
+ * The ShortestPathSearch class runs Dijkstra's algorithm on a compressed graph and keeps the
+ * resulting shortest path tree. Its arrays are sized once for the graph and reused by every
+ * search, so a search only touches the points it reaches and allocates nothing. An instance
+ * must not be shared between threads.
+ * <p>
+ * A search can be advanced one settled point at a time, which lets two searches run towards
+ * each other, and it can be told to skip points that cannot lie on a route within a distance bound.
+ * It counts the points it settles and the arcs it looks at, which can be handed over to Metrics.
+ */
+class ShortestPathSearch {
+    private final CsrGraph graph;
+    private final int[] distances;
+    private final int[] previousPoints;
+    private final int[] previousArcs;
+    private final int[] reachedMarks;
+    private final int[] visitedMarks;
+    private final IndexedHeap priorityQueue;
+    private int mark;
+    private ShortestPathSearch opposite;
+    private long meetingDistance;
+    private LowerBound lowerBound;
+    private long distanceBound;
+    private long settledCount;
+    private long relaxedCount;
+
+    /**
+     * Constructs a ShortestPathSearch for the specified graph.
+     *
+     * @param graph The compressed graph to search.
+     */
+    ShortestPathSearch(CsrGraph graph) {
+        int pointCount = graph.getPointCount();
+        this.graph = graph;
+        this.distances = new int[pointCount];
+        this.previousPoints = new int[pointCount];
+        this.previousArcs = new int[pointCount];
+        this.reachedMarks = new int[pointCount];
+        this.visitedMarks = new int[pointCount];
+        this.priorityQueue = new IndexedHeap(pointCount);
+    }
+
+    /**
+     * Packs a queue key ordered by distance, then by the ID of the road that reached the point.
+     *
+     * @param distance The distance of the point.
+     * @param roadId The ID of the road that reached the point, or -1 for the source.
+     * @return The packed key.
+     */
+    private static long queueKey(int distance, int roadId) {
+        return ((long) distance << 32) | ((roadId ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the graph this search runs on.
+     *
+     * @return The compressed graph.
+     */
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the specified source point until every reachable point is settled.
+     *
+     * @param source The ID of the starting point.
+     */
+    void search(int source) {
+        start(source);
+        while (settleNext() != -1) {
+            // Settles the whole reachable part of the graph.
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source point and stops as soon as the target point is settled.
+     * The shortest path tree up to the target is the same as the one a full search would build.
+     *
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     */
+    void search(int source, int target) {
+        start(source);
+        settleUntil(target);
+    }
+
+    /**
+     * Resets the search and puts the source point into the queue. Meeting tracking and
+     * distance bounds from an earlier search are cleared.
+     *
+     * @param source The ID of the starting point.
+     */
+    void start(int source) {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(reachedMarks, 0);
+            Arrays.fill(visitedMarks, 0);
+            mark = 0;
+        }
+        mark++;
+        priorityQueue.clear();
+        opposite = null;
+        meetingDistance = Long.MAX_VALUE;
+        lowerBound = null;
+        distanceBound = Long.MAX_VALUE;
+        distances[source] = 0;
+        reachedMarks[source] = mark;
+        previousArcs[source] = -1;
+        priorityQueue.push(source, queueKey(0, -1));
+    }
+
+    /**
+     * Settles points until the specified point is settled or the queue runs empty.
+     *
+     * @param target The ID of the point to stop at.
+     */
+    void settleUntil(int target) {
+        if (isSettled(target)) {
+            return;
+        }
+        int point;
+        do {
+            point = settleNext();
+        } while (point != -1 && point != target);
+    }
+
+    /**
+     * Settles the next point of the queue and relaxes its arcs. Points waiting in the queue are
+     * ordered by distance, then by the ID of the road that reached them; a shorter distance
+     * replaces the key of a waiting point.
+     *
+     * @return The ID of the settled point, or -1 if the queue is empty.
+     */
+    int settleNext() {
+        if (!priorityQueue.isEmpty()) {
+            int currentPoint = priorityQueue.poll();
+            visitedMarks[currentPoint] = mark;
+            settledCount++;
+            relaxedCount += graph.endArc(currentPoint) - graph.firstArc(currentPoint);
+
+            for (int arc = graph.firstArc(currentPoint); arc < graph.endArc(currentPoint); arc++) {
+                int nextPoint = graph.target(arc);
+                if (visitedMarks[nextPoint] == mark) {
+                    continue;
+                }
+                int newDist = distances[currentPoint] + graph.weight(arc);
+                if (opposite != null && opposite.isReached(nextPoint)) {
+                    meetingDistance = Math.min(meetingDistance, (long) newDist + opposite.getDistance(nextPoint));
+                }
+                if (lowerBound != null && lowerBound.toTarget(nextPoint) > distanceBound - newDist) {
+                    continue;
+                }
+                if (reachedMarks[nextPoint] != mark || newDist < distances[nextPoint]) {
+                    reachedMarks[nextPoint] = mark;
+                    distances[nextPoint] = newDist;
+                    previousPoints[nextPoint] = currentPoint;
+                    previousArcs[nextPoint] = arc;
+                    priorityQueue.push(nextPoint, queueKey(newDist, graph.roadId(arc)));
+                }
+            }
+            return currentPoint;
+        }
+        return -1;
+    }
+
+    /**
+     * Runs an A* search from the source point to the target point, ordering the queue by the
+     * distance plus the lower bound of the remaining distance. Only the length of the route is
+     * meaningful afterwards; the tie-breaking of the route itself is not that of Dijkstra's algorithm.
+     *
+     * @param source The ID of the starting point.
+     * @param target The ID of the ending point.
+     * @param potential A consistent lower bound of the distance from each point to the target.
+     * @return The length of the shortest route, or Long.MAX_VALUE if the target cannot be reached.
+     */
+    long searchDistance(int source, int target, LowerBound potential) {
+        start(source);
+        while (!priorityQueue.isEmpty()) {
+            int currentPoint = priorityQueue.poll();
+            visitedMarks[currentPoint] = mark;
+            settledCount++;
+            if (currentPoint == target) {
+                return distances[target];
+            }
+            relaxedCount += graph.endArc(currentPoint) - graph.firstArc(currentPoint);
+
+            for (int arc = graph.firstArc(currentPoint); arc < graph.endArc(currentPoint); arc++) {
+                int nextPoint = graph.target(arc);
+                if (visitedMarks[nextPoint] == mark) {
+                    continue;
+                }
+                int newDist = distances[currentPoint] + graph.weight(arc);
+                if (reachedMarks[nextPoint] != mark || newDist < distances[nextPoint]) {
+                    long remaining = potential.toTarget(nextPoint);
+                    if (remaining == Long.MAX_VALUE) {
+                        continue;
+                    }
+                    reachedMarks[nextPoint] = mark;
+                    distances[nextPoint] = newDist;
+                    previousPoints[nextPoint] = currentPoint;
+                    previousArcs[nextPoint] = arc;
+                    priorityQueue.push(nextPoint, queueKey((int) (newDist + remaining), graph.roadId(arc)));
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Hands the effort counted since the last hand-over to the specified counters as one search,
+     * and starts counting again.
+     *
+     * @param counters The counters to add the effort to.
+     */
+    void drainCounts(Metrics.Counters counters) {
+        counters.add(settledCount, relaxedCount, priorityQueue.getPushCount(), priorityQueue.getPollCount(),
+                0, priorityQueue.getPeakSize());
+        settledCount = 0;
+        relaxedCount = 0;
+        priorityQueue.resetCounts();
+    }
+
+    /**
+     * Gets the smallest distance still waiting in the queue.
+     *
+     * @return The smallest queued distance, or Long.MAX_VALUE if the queue is empty.
+     */
+    long peekDistance() {
+        return priorityQueue.isEmpty() ? Long.MAX_VALUE : priorityQueue.peekKey() >> 32;
+    }
+
+    /**
+     * Makes this search record the shortest route length through every point reached by the opposite search.
+     *
+     * @param opposite The search running from the other end of the route.
+     */
+    void meet(ShortestPathSearch opposite) {
+        this.opposite = opposite;
+    }
+
+    /**
+     * Gets the length of the shortest route found so far through a point reached by both searches.
+     *
+     * @return The route length, or Long.MAX_VALUE if the searches have not met.
+     */
+    long getMeetingDistance() {
+        return meetingDistance;
+    }
+
+    /**
+     * Makes the rest of this search skip arcs to points that cannot be on a route to the target
+     * of at most the specified length. Arcs that can still be on such a route are relaxed as before,
+     * so the shortest path tree on every shortest route does not change.
+     *
+     * @param lowerBound A lower bound of the distance from each point to the target.
+     * @param distanceBound The length of the shortest route to the target.
+     */
+    void restrict(LowerBound lowerBound, long distanceBound) {
+        this.lowerBound = lowerBound;
+        this.distanceBound = distanceBound;
+    }
+
+    /**
+     * Checks whether the last search reached the specified point.
+     *
+     * @param point The ID of the point.
+     * @return True if the point was reached, false otherwise.
+     */
+    boolean isReached(int point) {
+        return reachedMarks[point] == mark;
+    }
+
+    /**
+     * Checks whether the last search settled the specified point, which fixes its distance.
+     *
+     * @param point The ID of the point.
+     * @return True if the point was settled, false otherwise.
+     */
+    boolean isSettled(int point) {
+        return visitedMarks[point] == mark;
+    }
+
+    /**
+     * Gets the distance of the specified point from the source of the last search.
+     *
+     * @param point The ID of a reached point.
+     * @return The shortest distance to the point.
+     */
+    int getDistance(int point) {
+        return distances[point];
+    }
+
+    /**
+     * Gets the point from which the specified point was reached.
+     *
+     * @param point The ID of a reached point other than the source.
+     * @return The ID of the previous point on the shortest path.
+     */
+    int getPreviousPoint(int point) {
+        return previousPoints[point];
+    }
+
+    /**
+     * Gets the arc through which the specified point was reached.
+     *
+     * @param point The ID of a reached point.
+     * @return The index of the arc, or -1 for the source.
+     */
+    int getPreviousArc(int point) {
+        return previousArcs[point];
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The SnapshotReader class reads the values of a snapshot file in the order GraphSnapshot wrote them.
+ * A single mapping of a file cannot be larger than 2 GB, so the file is not mapped as a whole: every
+ * int array is mapped in chunks, and viewed in place or copied out in bulk, so that no array is
+ * limited by the size of a mapping.
+ */
+class SnapshotReader {
+    private static final int COPY_CHUNK_SIZE = 1 << 28;
+
+    private final FileChannel channel;
+    private long position;
+
+    /**
+     * Constructs a SnapshotReader that reads the specified file from the specified position.
+     *
+     * @param channel The channel of the snapshot file, which must stay open while reading.
+     * @param position The position of the first value to read.
+     */
+    SnapshotReader(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @return The int read.
+     * @throws IOException If the file cannot be read or ends before the int.
+     */
+    int readInt() throws IOException {
+        return read(Integer.BYTES).getInt(0);
+    }
+
+    /**
+     * Reads a long.
+     *
+     * @return The long read.
+     * @throws IOException If the file cannot be read or ends before the long.
+     */
+    long readLong() throws IOException {
+        return read(Long.BYTES).getLong(0);
+    }
+
+    /**
+     * Reads a length-prefixed int array written by GraphSnapshot.writeInts.
+     *
+     * @return The values of the array.
+     * @throws IOException If the file cannot be read or ends before the array.
+     */
+    int[] readInts() throws IOException {
+        int[] values = new int[readInt()];
+        IntBuffer[] chunks = viewInts(values.length, COPY_CHUNK_SIZE);
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk].get(0, values, chunk * COPY_CHUNK_SIZE, chunks[chunk].limit());
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed byte array written by GraphSnapshot.writeBytes.
+     *
+     * @return The bytes of the array.
+     * @throws IOException If the file cannot be read or ends before the array.
+     */
+    byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readInt()];
+        read(bytes.length).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads the values of an int array written by GraphSnapshot.writeInts, whose length was read
+     * already, without copying them. The values are mapped in chunks, so the array may be larger
+     * than a single mapping.
+     *
+     * @param length The number of values.
+     * @param chunkSize The number of values of every chunk but the last one.
+     * @return Buffers over the chunks of the values, mapped from the file.
+     * @throws IOException If the file cannot be mapped or ends before the values.
+     */
+    IntBuffer[] viewInts(int length, int chunkSize) throws IOException {
+        IntBuffer[] chunks = new IntBuffer[(int) (((long) length + chunkSize - 1) / chunkSize)];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            int size = Math.min(chunkSize, length - chunk * chunkSize);
+            chunks[chunk] = map((long) size * Integer.BYTES).asIntBuffer();
+        }
+        return chunks;
+    }
+
+    /**
+     * Reads a length-prefixed byte array written by GraphSnapshot.writeBytes without copying it.
+     *
+     * @return A buffer over the bytes of the array, mapped from the file.
+     * @throws IOException If the file cannot be mapped or ends before the array.
+     */
+    ByteBuffer viewBytes() throws IOException {
+        return map(readInt());
+    }
+
+    /**
+     * Reads the specified number of bytes into a heap buffer.
+     *
+     * @param length The number of bytes.
+     * @return The buffer holding the bytes.
+     * @throws IOException If the file cannot be read or ends before the bytes.
+     */
+    private ByteBuffer read(long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Snapshot ends at " + (position + buffer.position()));
+            }
+        }
+        position += length;
+        return buffer.flip();
+    }
+
+    /**
+     * Maps the specified number of bytes of the file.
+     *
+     * @param length The number of bytes.
+     * @return The buffer over the bytes.
+     * @throws IOException If the file cannot be mapped or ends before the bytes.
+     */
+    private ByteBuffer map(long length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new EOFException("Snapshot ends at " + channel.size());
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+        return buffer;
+    }
+}
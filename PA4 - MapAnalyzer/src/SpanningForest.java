@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * The SpanningForest class holds the roads of a graph sorted by distance, then by road ID,
+ * and builds minimum spanning trees from them. The position of a road in this order is its rank;
+ * ranks are unique, so the minimum spanning tree of every component is unique as well and
+ * Kruskal's and Boruvka's algorithms build the same tree as Prim's. The sorted roads are kept in
+ * the GraphStore of the graph, so the trees are built straight from that store.
+ */
+class SpanningForest {
+    private static final int NO_ROAD = Integer.MAX_VALUE;
+
+    private final int pointCount;
+    private final IntArray starts;
+    private final IntArray ends;
+    private final IntArray roadIds;
+
+    /**
+     * Sorts the roads of a graph by distance and road ID.
+     *
+     * @param store The store the sorted roads are kept in.
+     * @param pointCount The number of points in the graph.
+     * @param roadCount The number of roads in the graph.
+     * @param roadStarts The start point ID of each road.
+     * @param roadEnds The end point ID of each road.
+     * @param roadDistances The distance of each road.
+     * @param roadIdentifiers The ID of each road.
+     * @param roadIndex The index of every road by its ID.
+     */
+    SpanningForest(GraphStore store, int pointCount, int roadCount, IntArray roadStarts, IntArray roadEnds,
+                   IntArray roadDistances, IntArray roadIdentifiers, RoadIndex roadIndex) {
+        this.pointCount = pointCount;
+        this.starts = store.allocate(roadCount);
+        this.ends = store.allocate(roadCount);
+        this.roadIds = store.allocate(roadCount);
+        long[] keys = new long[roadCount];
+        for (int road = 0; road < roadCount; road++) {
+            keys[road] = ((long) roadDistances.get(road) << 32) | ((roadIdentifiers.get(road) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        }
+        Arrays.parallelSort(keys);
+        for (int rank = 0; rank < roadCount; rank++) {
+            int roadId = (int) keys[rank] ^ Integer.MIN_VALUE;
+            int road = roadIndex.get(roadId);
+            starts.set(rank, roadStarts.get(road));
+            ends.set(rank, roadEnds.get(road));
+            roadIds.set(rank, roadId);
+        }
+    }
+
+    /**
+     * Gets the ID of the road with the specified rank.
+     *
+     * @param rank The position of the road in the sorted order.
+     * @return The ID of the road.
+     */
+    int getRoadId(int rank) {
+        return roadIds.get(rank);
+    }
+
+    /**
+     * Builds the minimum spanning tree of the starting point's component with Kruskal's algorithm.
+     *
+     * @param start The ID of the starting point.
+     * @return The ranks of the tree roads in ascending order.
+     */
+    int[] kruskal(int start) {
+        UnionFind components = new UnionFind(pointCount);
+        return treeOf(start, kruskal(components), components);
+    }
+
+    /**
+     * Builds the minimum spanning forest of the whole graph with Kruskal's algorithm.
+     *
+     * @return The ranks of the forest roads in ascending order.
+     */
+    int[] kruskal() {
+        boolean[] inTree = kruskal(new UnionFind(pointCount));
+        return IntStream.range(0, inTree.length).filter(rank -> inTree[rank]).toArray();
+    }
+
+    /**
+     * Runs Kruskal's algorithm, merging the components of the roads it takes.
+     *
+     * @param components The components, one per point at the start.
+     * @return Whether each road, by rank, is in the spanning forest.
+     */
+    private boolean[] kruskal(UnionFind components) {
+        boolean[] inTree = new boolean[roadIds.length()];
+        for (int rank = 0; rank < roadIds.length() && components.getSetCount() > 1; rank++) {
+            inTree[rank] = components.union(starts.get(rank), ends.get(rank));
+        }
+        return inTree;
+    }
+
+    /**
+     * Builds the minimum spanning tree of the starting point's component with Boruvka's algorithm.
+     * In every round, the shortest road leaving each component is found by scanning the remaining
+     * roads in parallel, and those roads join the tree. Roads inside a component are dropped
+     * after each round.
+     *
+     * @param start The ID of the starting point.
+     * @return The ranks of the tree roads in ascending order.
+     */
+    int[] boruvka(int start) {
+        UnionFind components = new UnionFind(pointCount);
+        boolean[] inTree = new boolean[roadIds.length()];
+        int[] labels = new int[pointCount];
+        Arrays.setAll(labels, point -> point);
+        AtomicIntegerArray cheapest = new AtomicIntegerArray(pointCount);
+        int[] remaining = IntStream.range(0, roadIds.length()).filter(rank -> starts.get(rank) != ends.get(rank)).toArray();
+
+        while (remaining.length > 0) {
+            IntStream.range(0, pointCount).parallel().forEach(point -> cheapest.set(point, NO_ROAD));
+            IntStream.of(remaining).parallel().forEach(rank -> {
+                offer(cheapest, labels[starts.get(rank)], rank);
+                offer(cheapest, labels[ends.get(rank)], rank);
+            });
+            for (int point = 0; point < pointCount; point++) {
+                int rank = cheapest.get(point);
+                if (labels[point] == point && rank != NO_ROAD && components.union(starts.get(rank), ends.get(rank))) {
+                    inTree[rank] = true;
+                }
+            }
+            for (int point = 0; point < pointCount; point++) {
+                labels[point] = components.find(point);
+            }
+            remaining = IntStream.of(remaining).parallel().filter(rank -> labels[starts.get(rank)] != labels[ends.get(rank)]).toArray();
+        }
+        return treeOf(start, inTree, components);
+    }
+
+    /**
+     * Lowers the cheapest road rank of a component to the specified rank if it is smaller.
+     *
+     * @param cheapest The cheapest road rank of every component.
+     * @param component The representative point of the component.
+     * @param rank The rank of a road leaving the component.
+     */
+    private static void offer(AtomicIntegerArray cheapest, int component, int rank) {
+        int current = cheapest.get(component);
+        while (rank < current && !cheapest.compareAndSet(component, current, rank)) {
+            current = cheapest.get(component);
+        }
+    }
+
+    /**
+     * Collects the tree roads in the component of the starting point.
+     *
+     * @param start The ID of the starting point.
+     * @param inTree Whether each road, by rank, is in the spanning forest.
+     * @param components The components of the spanning forest.
+     * @return The ranks of the tree roads in ascending order.
+     */
+    private int[] treeOf(int start, boolean[] inTree, UnionFind components) {
+        int root = components.find(start);
+        return IntStream.range(0, inTree.length)
+                .filter(rank -> inTree[rank] && components.find(starts.get(rank)) == root)
+                .toArray();
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The TreePathIndex class answers route queries on a Barely Connected Map without searching it.
+ * On a tree the route between two points is unique: it climbs from the start to the lowest common
+ * ancestor of both points and then descends to the end. The tree is rooted at the point it was
+ * built from, and every point keeps its parent, its depth, its distance from the root and a jump
+ * pointer to an ancestor higher up. The jump pointers follow a skew-binary pattern, so an ancestor
+ * at any depth, and thus the lowest common ancestor, is found in O(log n) steps while the index
+ * takes only a few ints per point. A query then costs O(log n) plus the length of the route.
+ * <p>
+ * The index also remembers the graph version it was built for, so it can be reused by every query
+ * until the graph changes. It is never changed after it is built and may be shared between threads.
+ */
+class TreePathIndex {
+    private final long version;
+    private final List<Road> roads;
+    private final NameDictionary pointNames = new NameDictionary();
+    private final int[] roadDistances;
+    private final int[] roadIds;
+    private final int[] parents;
+    private final int[] parentRoads;
+    private final int[] jumps;
+    private final int[] depths;
+    private final int[] rootDistances;
+    private final int[] components;
+    private final int totalDistance;
+
+    /**
+     * Constructs a TreePathIndex for the roads of a Barely Connected Map. The roads may also form
+     * a forest, in which case points of different trees have no route between them.
+     *
+     * @param roads The roads of the tree.
+     * @param root The point the tree was built from, which becomes the root if it is on the tree.
+     * @param version The version of the graph the tree was built for.
+     */
+    TreePathIndex(List<Road> roads, String root, long version) {
+        this.version = version;
+        this.roads = roads;
+        int roadCount = roads.size();
+        int[] roadStarts = new int[roadCount];
+        int[] roadEnds = new int[roadCount];
+        this.roadDistances = new int[roadCount];
+        this.roadIds = new int[roadCount];
+        long total = 0;
+        for (int i = 0; i < roadCount; i++) {
+            Road road = roads.get(i);
+            roadStarts[i] = pointNames.intern(road.getStartPoint());
+            roadEnds[i] = pointNames.intern(road.getEndPoint());
+            roadDistances[i] = road.getDistance();
+            roadIds[i] = road.getRoadId();
+            total += road.getDistance();
+        }
+        this.totalDistance = (int) total;
+
+        int pointCount = pointNames.size();
+        int[] offsets = new int[pointCount + 1];
+        for (int i = 0; i < roadCount; i++) {
+            offsets[roadStarts[i] + 1]++;
+            offsets[roadEnds[i] + 1]++;
+        }
+        for (int point = 0; point < pointCount; point++) {
+            offsets[point + 1] += offsets[point];
+        }
+        int[] incidentRoads = new int[2 * roadCount];
+        int[] next = new int[pointCount];
+        System.arraycopy(offsets, 0, next, 0, pointCount);
+        for (int i = 0; i < roadCount; i++) {
+            incidentRoads[next[roadStarts[i]]++] = i;
+            incidentRoads[next[roadEnds[i]]++] = i;
+        }
+
+        this.parents = new int[pointCount];
+        this.parentRoads = new int[pointCount];
+        this.jumps = new int[pointCount];
+        this.depths = new int[pointCount];
+        this.rootDistances = new int[pointCount];
+        this.components = new int[pointCount];
+        boolean[] visited = new boolean[pointCount];
+        int[] order = new int[pointCount];
+        int rootId = pointNames.find(root);
+        for (int i = -1; i < pointCount; i++) {
+            int point = i == -1 ? rootId : i;
+            if (point == -1 || visited[point]) {
+                continue;
+            }
+            visited[point] = true;
+            parents[point] = point;
+            parentRoads[point] = -1;
+            jumps[point] = point;
+            components[point] = point;
+            order[0] = point;
+            for (int head = 0, tail = 1; head < tail; head++) {
+                int parent = order[head];
+                for (int index = offsets[parent]; index < offsets[parent + 1]; index++) {
+                    int road = incidentRoads[index];
+                    int child = roadStarts[road] == parent ? roadEnds[road] : roadStarts[road];
+                    if (!visited[child]) {
+                        visited[child] = true;
+                        attach(child, parent, road);
+                        order[tail++] = child;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Hangs a point below its parent, which must already be in place.
+     *
+     * @param child The ID of the point.
+     * @param parent The ID of its parent.
+     * @param road The index of the road between them.
+     */
+    private void attach(int child, int parent, int road) {
+        parents[child] = parent;
+        parentRoads[child] = road;
+        depths[child] = depths[parent] + 1;
+        rootDistances[child] = rootDistances[parent] + roadDistances[road];
+        components[child] = components[parent];
+        int jump = jumps[parent];
+        jumps[child] = depths[parent] - depths[jump] == depths[jump] - depths[jumps[jump]] ? jumps[jump] : parent;
+    }
+
+    /**
+     * Gets the version of the graph the tree was built for.
+     *
+     * @return The graph version.
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the roads of the tree, in the order they were given.
+     *
+     * @return The roads of the tree.
+     */
+    List<Road> getRoads() {
+        return roads;
+    }
+
+    /**
+     * Checks whether a point lies on the tree.
+     *
+     * @param point The name of the point.
+     * @return True if a road of the tree starts or ends at the point, false otherwise.
+     */
+    boolean contains(String point) {
+        return pointNames.find(point) != -1;
+    }
+
+    /**
+     * Gets the total distance of all roads of the tree.
+     *
+     * @return The total distance of the roads.
+     */
+    int getTotalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * Finds the route between two points of the tree.
+     *
+     * @param start The starting point.
+     * @param end The ending point.
+     * @return The roads of the route, each holding the distance travelled up to its end, or an empty list if there is no route.
+     */
+    List<Road> findRoute(String start, String end) {
+        LinkedList<Road> path = new LinkedList<>();
+        int source = pointNames.find(start);
+        int target = pointNames.find(end);
+        if (source == -1 || target == -1 || source == target || components[source] != components[target]) {
+            return path;
+        }
+        int meeting = lowestCommonAncestor(source, target);
+        int distance = 0;
+        for (int point = source; point != meeting; point = parents[point]) {
+            distance += roadDistances[parentRoads[point]];
+            path.add(new Road(pointNames, point, parents[point], distance, roadIds[parentRoads[point]]));
+        }
+        List<Road> descent = new ArrayList<>();
+        distance += rootDistances[target] - rootDistances[meeting];
+        for (int point = target; point != meeting; point = parents[point]) {
+            descent.add(new Road(pointNames, parents[point], point, distance, roadIds[parentRoads[point]]));
+            distance -= roadDistances[parentRoads[point]];
+        }
+        for (int i = descent.size() - 1; i >= 0; i--) {
+            path.add(descent.get(i));
+        }
+        return path;
+    }
+
+    /**
+     * Finds the deepest point that is an ancestor of both points, which must be on the same tree.
+     *
+     * @param first The ID of the first point.
+     * @param second The ID of the second point.
+     * @return The ID of the lowest common ancestor.
+     */
+    private int lowestCommonAncestor(int first, int second) {
+        if (depths[first] > depths[second]) {
+            first = ancestorAt(first, depths[second]);
+        } else {
+            second = ancestorAt(second, depths[first]);
+        }
+        while (first != second) {
+            if (jumps[first] != jumps[second]) {
+                first = jumps[first];
+                second = jumps[second];
+            } else {
+                first = parents[first];
+                second = parents[second];
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Finds the ancestor of a point at the specified depth.
+     *
+     * @param point The ID of the point.
+     * @param depth The depth of the ancestor, at most the depth of the point.
+     * @return The ID of the ancestor.
+     */
+    private int ancestorAt(int point, int depth) {
+        while (depths[point] > depth) {
+            point = depths[jumps[point]] >= depth ? jumps[point] : parents[point];
+        }
+        return point;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+/**
+ * The UnionFind class keeps a partition of points into disjoint sets, with union by size
+ * and path halving so that both operations take nearly constant time. Points can be added
+ * after construction, each in a set of its own.
+ */
+class UnionFind {
+    private int[] parents;
+    private int[] sizes;
+    private int pointCount;
+    private int setCount;
+
+    /**
+     * Constructs a UnionFind in which every point is in a set of its own.
+     *
+     * @param pointCount The number of points.
+     */
+    UnionFind(int pointCount) {
+        this.parents = new int[Math.max(16, pointCount)];
+        this.sizes = new int[parents.length];
+        this.pointCount = pointCount;
+        this.setCount = pointCount;
+        for (int point = 0; point < pointCount; point++) {
+            parents[point] = point;
+            sizes[point] = 1;
+        }
+    }
+
+    /**
+     * Adds a point in a set of its own.
+     *
+     * @return The ID of the new point.
+     */
+    int add() {
+        if (pointCount == parents.length) {
+            parents = Arrays.copyOf(parents, pointCount * 2);
+            sizes = Arrays.copyOf(sizes, pointCount * 2);
+        }
+        parents[pointCount] = pointCount;
+        sizes[pointCount] = 1;
+        setCount++;
+        return pointCount++;
+    }
+
+    /**
+     * Finds the representative of the set containing the specified point. Path halving only ever
+     * points a point to another point of its set, so finds may run in several threads at once.
+     *
+     * @param point The ID of the point.
+     * @return The ID of the representative point.
+     */
+    int find(int point) {
+        while (parents[point] != point) {
+            parents[point] = parents[parents[point]];
+            point = parents[point];
+        }
+        return point;
+    }
+
+    /**
+     * Merges the sets containing the two specified points.
+     *
+     * @param first The ID of the first point.
+     * @param second The ID of the second point.
+     * @return True if the sets were merged, false if the points were already in the same set.
+     */
+    boolean union(int first, int second) {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+        if (firstRoot == secondRoot) {
+            return false;
+        }
+        if (sizes[firstRoot] < sizes[secondRoot]) {
+            int swap = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = swap;
+        }
+        parents[secondRoot] = firstRoot;
+        sizes[firstRoot] += sizes[secondRoot];
+        setCount--;
+        return true;
+    }
+
+    /**
+     * Gets the number of disjoint sets.
+     *
+     * @return The number of sets.
+     */
+    int getSetCount() {
+        return setCount;
+    }
+}